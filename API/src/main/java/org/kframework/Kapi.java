@@ -1,7 +1,6 @@
 // Copyright (c) 2016 K Team. All Rights Reserved.
 package org.kframework;
 
-import com.google.common.collect.ImmutableList;
 import org.apache.commons.lang3.tuple.Pair;
 import org.kframework.RewriterResult;
 import org.kframework.attributes.Att;
@@ -241,8 +240,8 @@ public class Kapi {
 
         ConjunctiveFormula ensure = ConjunctiveFormula.of(global);
 
-        ImmutableList<Term> l1 = getChildren(e1);
-        ImmutableList<Term> l2 = getChildren(e2);
+        List<Term> l1 = getChildren(e1);
+        List<Term> l2 = getChildren(e2);
 
         assert l1.size() == l2.size();
         for (int j = 0; j < l1.size(); j++) {
@@ -255,7 +254,7 @@ public class Kapi {
         return ensure;
     }
 
-    private static ImmutableList<Term> getChildren(ConjunctiveFormula e) {
+    private static List<Term> getChildren(ConjunctiveFormula e) {
         // TODO: make it better
         assert e.equalities().size() == 1;
         assert e.equalities().get(0).leftHandSide() instanceof KItem;
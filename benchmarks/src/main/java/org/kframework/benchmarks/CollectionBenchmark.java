@@ -0,0 +1,109 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.benchmarks;
+
+import org.kframework.backend.java.builtins.IntToken;
+import org.kframework.backend.java.kil.BuiltinList;
+import org.kframework.backend.java.kil.BuiltinMap;
+import org.kframework.backend.java.kil.BuiltinSet;
+import org.kframework.backend.java.kil.GlobalContext;
+import org.kframework.backend.java.kil.Term;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups and single-element updates of the builtin map, set and list of the Java backend.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class CollectionBenchmark {
+
+    @State(Scope.Thread)
+    public static class Collections {
+
+        @Param({"16", "1024"})
+        public int size;
+
+        GlobalContext global;
+        IntToken[] keys;
+        IntToken absentKey;
+        BuiltinMap map;
+        BuiltinSet set;
+        BuiltinList list;
+        int next = 0;
+
+        @Setup(Level.Trial)
+        public void setUp(ImpDefinition imp) {
+            global = imp.context.global();
+            keys = new IntToken[size];
+            BuiltinMap.Builder mapBuilder = BuiltinMap.builder(global);
+            BuiltinSet.Builder setBuilder = BuiltinSet.builder(global);
+            BuiltinList.Builder listBuilder = BuiltinList.builder(global);
+            for (int i = 0; i < size; i++) {
+                keys[i] = IntToken.of(i);
+                mapBuilder.put(keys[i], IntToken.of(-i));
+                setBuilder.add(keys[i]);
+                listBuilder.add(keys[i]);
+            }
+            absentKey = IntToken.of(size);
+            map = (BuiltinMap) mapBuilder.build();
+            set = (BuiltinSet) setBuilder.build();
+            list = (BuiltinList) listBuilder.build();
+        }
+
+        int nextIndex() {
+            next = next + 1 < size ? next + 1 : 0;
+            return next;
+        }
+    }
+
+    @Benchmark
+    public Term mapLookup(Collections c) {
+        return c.map.get(c.keys[c.nextIndex()]);
+    }
+
+    @Benchmark
+    public Term mapUpdate(Collections c) {
+        BuiltinMap.Builder builder = BuiltinMap.builder(c.global);
+        builder.concatenate(c.map);
+        builder.put(c.keys[c.nextIndex()], c.absentKey);
+        return builder.build();
+    }
+
+    @Benchmark
+    public boolean setContains(Collections c) {
+        return c.set.contains(c.keys[c.nextIndex()]);
+    }
+
+    @Benchmark
+    public Term setInsert(Collections c) {
+        BuiltinSet.Builder builder = BuiltinSet.builder(c.global);
+        builder.concatenate(c.set);
+        builder.add(c.absentKey);
+        return builder.build();
+    }
+
+    @Benchmark
+    public Term listGet(Collections c) {
+        return c.list.get(c.nextIndex());
+    }
+
+    @Benchmark
+    public Term listAppend(Collections c) {
+        return BuiltinList.builder(c.global).addAll(c.list).add(c.absentKey).build();
+    }
+}
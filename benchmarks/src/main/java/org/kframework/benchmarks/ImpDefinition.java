@@ -0,0 +1,80 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.benchmarks;
+
+import org.apache.commons.io.IOUtils;
+import org.kframework.Kapi;
+import org.kframework.backend.java.compile.KOREtoBackendKIL;
+import org.kframework.backend.java.kil.ConstrainedTerm;
+import org.kframework.backend.java.kil.TermContext;
+import org.kframework.backend.java.symbolic.MacroExpander;
+import org.kframework.backend.java.symbolic.SymbolicRewriter;
+import org.kframework.backend.java.util.JavaKRunState;
+import org.kframework.frontend.K;
+import org.kframework.kompile.CompiledDefinition;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import scala.Tuple2;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * The IMP definition bundled with the benchmarks, kompiled once per trial, together with a rewriter
+ * for it and the initial configuration of a program summing the numbers from 1 to {@link #n}.
+ */
+@State(Scope.Benchmark)
+public class ImpDefinition {
+
+    @Param({"1000"})
+    public int n;
+
+    public SymbolicRewriter rewriter;
+    public TermContext context;
+    public KOREtoBackendKIL converter;
+    public List<String> transitions;
+    /** The initial configuration, before conversion to the Java backend. */
+    public K program;
+    public ConstrainedTerm initialState;
+
+    @Setup(Level.Trial)
+    public void kompile() throws IOException {
+        Kapi kapi = new Kapi();
+        String definition;
+        try (InputStream in = ImpDefinition.class.getResourceAsStream("imp.k")) {
+            definition = IOUtils.toString(in, StandardCharsets.UTF_8);
+        }
+        CompiledDefinition compiledDef = kapi.kompile(definition, "IMP");
+        Tuple2<SymbolicRewriter, TermContext> rewriterAndContext = kapi.getRewriter(compiledDef);
+        rewriter = rewriterAndContext._1();
+        context = rewriterAndContext._2();
+        converter = rewriter.getConstructor();
+        transitions = kapi.kapiGlobal.kompileOptions.transition;
+
+        program = kapi.kast(sumProgram(n), compiledDef);
+        initialState = new ConstrainedTerm(
+                MacroExpander.expandAndEvaluate(context, kapi.kapiGlobal.kem, converter.convert(program)),
+                context);
+    }
+
+    /**
+     * Returns the configuration reached from the initial one after the given number of rewrite steps.
+     */
+    public ConstrainedTerm stateAfter(int steps) {
+        return ((JavaKRunState) rewriter.rewrite(initialState, steps)).getConstrainedTerm();
+    }
+
+    private static String sumProgram(int n) {
+        return "int n, sum;\n"
+                + "n = " + n + ";\n"
+                + "sum = 0;\n"
+                + "while (!(n <= 0)) {\n"
+                + "  sum = sum + n;\n"
+                + "  n = n + -1;\n"
+                + "}\n";
+    }
+}
@@ -0,0 +1,85 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.benchmarks;
+
+import org.kframework.backend.java.kil.ConstrainedTerm;
+import org.kframework.backend.java.kil.Definition;
+import org.kframework.backend.java.kil.Rule;
+import org.kframework.backend.java.kil.Term;
+import org.kframework.backend.java.symbolic.ConjunctiveFormula;
+import org.kframework.backend.java.symbolic.FastRuleMatcher;
+import org.kframework.utils.BitSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The phases of a single rewrite step on a configuration taken from the middle of the IMP sum program:
+ * matching the rule automaton, simplifying the resulting constraint, instantiating the right-hand side of
+ * the matched rule, and the whole step.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class MatchingBenchmark {
+
+    @State(Scope.Thread)
+    public static class Subject {
+
+        @Param({"200"})
+        public int steps;
+
+        ConstrainedTerm state;
+        Term pattern;
+        BitSet allRules;
+        FastRuleMatcher matcher;
+        FastRuleMatcher.RuleMatchResult match;
+        Rule rule;
+
+        @Setup(Level.Trial)
+        public void setUp(ImpDefinition imp) {
+            state = imp.stateAfter(steps);
+            Definition definition = imp.context.definition();
+            pattern = definition.automaton.leftHandSide();
+            allRules = BitSet.apply(definition.ruleTable.size());
+            allRules.makeOnes(definition.ruleTable.size());
+            matcher = new FastRuleMatcher(imp.context.global(), definition.ruleTable.size());
+            match = matcher.matchRulePattern(state, pattern, allRules, false, false, imp.transitions, false, imp.context).get(0);
+            rule = definition.ruleTable.get(match.ruleIndex);
+        }
+    }
+
+    @Benchmark
+    public List<FastRuleMatcher.RuleMatchResult> matchRulePattern(ImpDefinition imp, Subject subject) {
+        return subject.matcher.matchRulePattern(
+                subject.state, subject.pattern, subject.allRules, false, false, imp.transitions, false, imp.context);
+    }
+
+    @Benchmark
+    public ConjunctiveFormula simplify(ImpDefinition imp, Subject subject) {
+        return subject.match.constraint.simplify(imp.context);
+    }
+
+    @Benchmark
+    public Term substitute(ImpDefinition imp, Subject subject) {
+        return subject.rule.rightHandSide().substituteAndEvaluate(subject.match.constraint.substitution(), imp.context);
+    }
+
+    @Benchmark
+    public List<ConstrainedTerm> rewriteStep(ImpDefinition imp, Subject subject) {
+        return imp.rewriter.fastComputeRewriteStep(subject.state, false, false, false);
+    }
+}
@@ -0,0 +1,33 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.benchmarks;
+
+import org.kframework.krun.api.KRunState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rewrite steps per second of concrete execution of the IMP sum program.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class RewriteBenchmark {
+
+    private static final int STEPS = 1000;
+
+    @Benchmark
+    @OperationsPerInvocation(STEPS)
+    public KRunState rewrite(ImpDefinition imp) {
+        return imp.rewriter.rewrite(imp.initialState, STEPS);
+    }
+}
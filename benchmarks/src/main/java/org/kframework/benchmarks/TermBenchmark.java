@@ -0,0 +1,56 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.benchmarks;
+
+import org.kframework.backend.java.kil.Term;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashing and equality of whole configurations. Hash codes are cached in terms, so hashing is measured on
+ * freshly converted configurations, against the cost of the conversion alone.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class TermBenchmark {
+
+    @State(Scope.Thread)
+    public static class Configurations {
+        Term configuration;
+        Term copy;
+
+        @Setup(Level.Trial)
+        public void setUp(ImpDefinition imp) {
+            configuration = imp.converter.convert(imp.program);
+            copy = imp.converter.convert(imp.program);
+        }
+    }
+
+    @Benchmark
+    public Term convert(ImpDefinition imp) {
+        return imp.converter.convert(imp.program);
+    }
+
+    @Benchmark
+    public int convertAndHash(ImpDefinition imp) {
+        return imp.converter.convert(imp.program).hashCode();
+    }
+
+    @Benchmark
+    public boolean equalsCopy(Configurations configurations) {
+        return configurations.configuration.equals(configurations.copy);
+    }
+}
@@ -0,0 +1,409 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+
+package org.kframework.definition
+
+import java.io._
+import java.nio.{BufferUnderflowException, ByteBuffer}
+import java.nio.channels.FileChannel
+import java.nio.charset.StandardCharsets
+import java.nio.file.StandardOpenOption
+
+import org.kframework.attributes.Att
+import org.kframework.frontend._
+
+import scala.collection.JavaConverters._
+import scala.collection.mutable
+
+/**
+  * A compact binary encoding of a [[Definition]], which loads much faster than parsing its textual KORE.
+  *
+  * The file starts with a magic number and a version, followed by eight tables: the strings, the objects
+  * which have no encoding of their own (stored with Java serialization), the sorts, the labels, the attributes,
+  * the terms, the modules and the definition. Each table is a count, the offsets of its entries and their
+  * contents, so that any entry can be read without reading the ones before it. Sorts, labels, attributes and
+  * terms are hash-consed: each distinct one is stored once and referred to by its index, and the children of
+  * a term are stored before it.
+  *
+  * The file is memory-mapped when read, and each string and term is only decoded once, when first used.
+  * Modules are decoded in import order, as a module checks its sentences when it is created.
+  */
+object BinaryDefinition {
+  val MAGIC: Int = 0x4b444546 // "KDEF"
+  /**
+    * The version of the encoding, to be incremented whenever it changes.
+    */
+  val VERSION: Int = 1
+
+  private final val SERIALIZED = -1
+
+  private final val SORT_LOOKUP = 0
+  private final val RESOLVED_SORT = 1
+
+  private final val LABEL_LOOKUP = 0
+
+  private final val APPLY = 0
+  private final val TOKEN = 1
+  private final val VARIABLE = 2
+  private final val SORTED_VARIABLE = 3
+  private final val SEQUENCE = 4
+  private final val REWRITE = 5
+  private final val INJECTED_LABEL = 6
+
+  private final val RULE = 0
+  private final val CONTEXT = 1
+  private final val CONFIGURATION = 2
+  private final val BUBBLE = 3
+  private final val MODULE_COMMENT = 4
+  private final val SYNTAX_SORT = 5
+  private final val PRODUCTION = 6
+  private final val SYNTAX_PRIORITY = 7
+  private final val SYNTAX_ASSOCIATIVITY = 8
+
+  private final val NON_TERMINAL = 0
+  private final val TERMINAL = 1
+  private final val REGEX_TERMINAL = 2
+
+  @throws[IOException]
+  def write(definition: Definition, file: File): Unit = {
+    val writer = new Writer
+    writer.definition(definition)
+    val out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))
+    try {
+      out.writeInt(MAGIC)
+      out.writeInt(VERSION)
+      writer.tables foreach {_.write(out)}
+    } finally {
+      out.close()
+    }
+  }
+
+  @throws[IOException]
+  def read(file: File): Definition = {
+    val channel = FileChannel.open(file.toPath, StandardOpenOption.READ)
+    val buffer = try channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size) finally channel.close()
+    if (buffer.limit < 8 || buffer.getInt(0) != MAGIC)
+      throw new IOException("Not a binary K definition: " + file)
+    if (buffer.getInt(4) != VERSION)
+      throw new IOException("Binary K definition " + file + " has version " + buffer.getInt(4) + ", expected " + VERSION)
+    try {
+      new Reader(buffer).definition()
+    } catch {
+      case e@(_: IndexOutOfBoundsException | _: BufferUnderflowException | _: ClassNotFoundException) =>
+        throw new IOException("Corrupted binary K definition: " + file, e)
+    }
+  }
+
+  private trait TableBuilder {
+    def write(out: DataOutputStream): Unit
+  }
+
+  private class ByteTableBuilder extends TableBuilder {
+    private val entries = mutable.ArrayBuffer[Array[Byte]]()
+
+    def add(entry: Array[Byte]): Int = {
+      entries += entry
+      entries.size - 1
+    }
+
+    def write(out: DataOutputStream): Unit = {
+      out.writeInt(entries.size)
+      var offset = 0
+      out.writeInt(offset)
+      entries foreach { e => offset += e.length; out.writeInt(offset) }
+      entries foreach { e => out.write(e) }
+    }
+  }
+
+  private class IntTableBuilder(hashConsed: Boolean) extends TableBuilder {
+    private val entries = mutable.ArrayBuffer[Array[Int]]()
+    private val indices = mutable.HashMap[Seq[Int], Int]()
+
+    def add(entry: Array[Int]): Int =
+      if (hashConsed) {
+        indices.getOrElseUpdate(entry.toSeq, {
+          entries += entry
+          entries.size - 1
+        })
+      } else {
+        entries += entry
+        entries.size - 1
+      }
+
+    def write(out: DataOutputStream): Unit = {
+      out.writeInt(entries.size)
+      var offset = 0
+      out.writeInt(offset)
+      entries foreach { e => offset += e.length; out.writeInt(offset) }
+      entries foreach { e => e foreach out.writeInt }
+    }
+  }
+
+  private class Writer {
+    private val strings = new ByteTableBuilder
+    private val blobs = new ByteTableBuilder
+    private val sorts = new IntTableBuilder(true)
+    private val labels = new IntTableBuilder(true)
+    private val atts = new IntTableBuilder(true)
+    private val terms = new IntTableBuilder(true)
+    private val modules = new IntTableBuilder(false)
+    private val definitions = new IntTableBuilder(false)
+
+    val tables: Seq[TableBuilder] = Seq(strings, blobs, sorts, labels, atts, terms, modules, definitions)
+
+    private val stringIndices = mutable.HashMap[String, Int]()
+    private val moduleIndices = mutable.HashMap[String, Int]()
+
+    def string(s: String): Int = stringIndices.getOrElseUpdate(s, strings.add(s.getBytes(StandardCharsets.UTF_8)))
+
+    def blob(o: AnyRef): Int = {
+      val bytes = new ByteArrayOutputStream()
+      val out = new ObjectOutputStream(bytes)
+      try out.writeObject(o) finally out.close()
+      blobs.add(bytes.toByteArray)
+    }
+
+    def sort(s: Sort): Int = sorts.add(s match {
+      case ADT.SortLookup(localName, moduleName) => Array(SORT_LOOKUP, string(localName), string(moduleName.s))
+      case ADT.Sort(localName, moduleName) => Array(RESOLVED_SORT, string(localName), string(moduleName.s))
+      case _ => Array(SERIALIZED, blob(s))
+    })
+
+    def label(l: KLabel): Int = labels.add(l match {
+      case ADT.KLabelLookup(name) => Array(LABEL_LOOKUP, string(name))
+      case _ => Array(SERIALIZED, blob(l))
+    })
+
+    def att(a: Att): Int = atts.add(a.att.iterator.map(term).toArray.sorted)
+
+    def term(k: K): Int = terms.add(k match {
+      case v: SortedADT.SortedKVariable => Array(SORTED_VARIABLE, string(v.name), att(v.att))
+      case v: ADT.KVariable => Array(VARIABLE, string(v.name), att(v.att))
+      case t: ADT.KToken => Array(TOKEN, string(t.s), sort(t.sort), att(t.att))
+      case s: ADT.KSequence => Array(SEQUENCE, att(s.att)) ++ s.elements.map(term)
+      case a: ADT.KApply[_] => Array(APPLY, label(a.klabel), att(a.att)) ++ a.items.asScala.map(term)
+      case r: ADT.KRewrite => Array(REWRITE, term(r.left), term(r.right), att(r.att))
+      case i: ADT.InjectedKLabel => Array(INJECTED_LABEL, label(i.klabel), att(i.att))
+      case _ => Array(SERIALIZED, blob(k))
+    })
+
+    def module(m: Module): Int = moduleIndices.getOrElse(m.name, {
+      // the imports of a module are stored before it
+      val imports = m.imports.toSeq.map(module)
+      val record = mutable.ArrayBuffer(string(m.name), att(m.att), imports.size)
+      record ++= imports
+      record += m.unresolvedLocalSentences.size
+      m.unresolvedLocalSentences foreach { s => sentence(s, record) }
+      val index = modules.add(record.toArray)
+      moduleIndices(m.name) = index
+      index
+    })
+
+    private def sentence(s: Sentence, record: mutable.ArrayBuffer[Int]): Unit = s match {
+      case Rule(body, requires, ensures, a) =>
+        record ++= Seq(RULE, term(body), term(requires), term(ensures), att(a))
+      case Context(body, requires, a) =>
+        record ++= Seq(CONTEXT, term(body), term(requires), att(a))
+      case Configuration(body, ensures, a) =>
+        record ++= Seq(CONFIGURATION, term(body), term(ensures), att(a))
+      case Bubble(sentenceType, contents, a) =>
+        record ++= Seq(BUBBLE, string(sentenceType), string(contents), att(a))
+      case ModuleComment(comment, a) =>
+        record ++= Seq(MODULE_COMMENT, string(comment), att(a))
+      case SyntaxSort(sort, a) =>
+        record ++= Seq(SYNTAX_SORT, this.sort(sort), att(a))
+      case Production(sort, items, a) =>
+        record ++= Seq(PRODUCTION, this.sort(sort), att(a), items.size)
+        items foreach {
+          case NonTerminal(itemSort) =>
+            record ++= Seq(NON_TERMINAL, this.sort(itemSort))
+          case Terminal(value, followRegex) =>
+            record ++= Seq(TERMINAL, string(value), followRegex.size) ++ followRegex.map(string)
+          case RegexTerminal(precedeRegex, regex, followRegex) =>
+            record ++= Seq(REGEX_TERMINAL, string(precedeRegex), string(regex), string(followRegex))
+        }
+      case SyntaxPriority(priorities, a) =>
+        record ++= Seq(SYNTAX_PRIORITY, att(a), priorities.size)
+        priorities foreach { tags => record ++= tagSet(tags) }
+      case SyntaxAssociativity(assoc, tags, a) =>
+        record ++= Seq(SYNTAX_ASSOCIATIVITY, assoc.id, att(a)) ++ tagSet(tags)
+      case _ =>
+        record ++= Seq(SERIALIZED, blob(s))
+    }
+
+    private def tagSet(tags: collection.Set[Tag]): Seq[Int] = tags.size +: tags.toSeq.map(t => string(t.name))
+
+    def definition(d: Definition): Unit =
+      definitions.add(Array(module(d.mainModule), att(d.att), d.entryModules.size) ++ d.entryModules.toSeq.map(module))
+  }
+
+  /**
+    * A view of a table in the mapped file; {@code unit} is the size in bytes of the elements of its entries.
+    */
+  private class Table(buffer: ByteBuffer, start: Int, unit: Int) {
+    val count: Int = buffer.getInt(start)
+    private val contents = start + 4 * (count + 2)
+    val end: Int = contents + unit * offset(count)
+
+    private def offset(i: Int): Int = buffer.getInt(start + 4 * (i + 1))
+
+    def size(i: Int): Int = offset(i + 1) - offset(i)
+
+    def int(i: Int, j: Int): Int = buffer.getInt(contents + 4 * (offset(i) + j))
+
+    def bytes(i: Int): Array[Byte] = {
+      val bytes = new Array[Byte](size(i))
+      val view = buffer.duplicate()
+      view.position(contents + offset(i))
+      view.get(bytes)
+      bytes
+    }
+  }
+
+  private class Cursor(table: Table, entry: Int) {
+    private var position = 0
+
+    def next(): Int = {
+      val value = table.int(entry, position)
+      position += 1
+      value
+    }
+  }
+
+  private class Reader(buffer: ByteBuffer) {
+    private var position = 8
+
+    private def table(unit: Int): Table = {
+      val t = new Table(buffer, position, unit)
+      position = t.end
+      t
+    }
+
+    private val strings = table(1)
+    private val blobs = table(1)
+    private val sorts = table(4)
+    private val labels = table(4)
+    private val atts = table(4)
+    private val terms = table(4)
+    private val modules = table(4)
+    private val definitions = table(4)
+
+    private val stringCache = new Array[String](strings.count)
+    private val sortCache = new Array[Sort](sorts.count)
+    private val labelCache = new Array[KLabel](labels.count)
+    private val attCache = new Array[Att](atts.count)
+    private val termCache = new Array[K](terms.count)
+
+    private def corrupted(kind: String, tag: Int) = throw new IOException("Unknown " + kind + " tag " + tag)
+
+    def string(i: Int): String = {
+      if (stringCache(i) == null)
+        stringCache(i) = new String(strings.bytes(i), StandardCharsets.UTF_8)
+      stringCache(i)
+    }
+
+    def blob[T](i: Int): T = {
+      val in = new ObjectInputStream(new ByteArrayInputStream(blobs.bytes(i)))
+      try in.readObject().asInstanceOf[T] finally in.close()
+    }
+
+    def sort(i: Int): Sort = {
+      if (sortCache(i) == null)
+        sortCache(i) = sorts.int(i, 0) match {
+          case SORT_LOOKUP => ADT.SortLookup(string(sorts.int(i, 1)), ModuleName(string(sorts.int(i, 2))))
+          case RESOLVED_SORT => ADT.Sort(string(sorts.int(i, 1)), ModuleName(string(sorts.int(i, 2))))
+          case SERIALIZED => blob[Sort](sorts.int(i, 1))
+          case tag => corrupted("sort", tag)
+        }
+      sortCache(i)
+    }
+
+    def label(i: Int): KLabel = {
+      if (labelCache(i) == null)
+        labelCache(i) = labels.int(i, 0) match {
+          case LABEL_LOOKUP => ADT.KLabelLookup(string(labels.int(i, 1)))
+          case SERIALIZED => blob[KLabel](labels.int(i, 1))
+          case tag => corrupted("label", tag)
+        }
+      labelCache(i)
+    }
+
+    def att(i: Int): Att = {
+      if (attCache(i) == null)
+        attCache(i) = Att((0 until atts.size(i)).map(j => term(atts.int(i, j))).toSet)
+      attCache(i)
+    }
+
+    def term(i: Int): K = {
+      if (termCache(i) == null)
+        termCache(i) = decodeTerm(i)
+      termCache(i)
+    }
+
+    private def children(i: Int, from: Int): List[K] = (from until terms.size(i)).map(j => term(terms.int(i, j))).toList
+
+    private def decodeTerm(i: Int): K = terms.int(i, 0) match {
+      case APPLY => ADT.KApply(label(terms.int(i, 1)), ADT.KList(children(i, 3)), att(terms.int(i, 2)))
+      case TOKEN => ADT.KToken(string(terms.int(i, 1)), sort(terms.int(i, 2)), att(terms.int(i, 3)))
+      case VARIABLE => ADT.KVariable(string(terms.int(i, 1)), att(terms.int(i, 2)))
+      case SORTED_VARIABLE => SortedADT.SortedKVariable(string(terms.int(i, 1)), att(terms.int(i, 2)))
+      case SEQUENCE =>
+        // the elements were already flattened when the sequence was stored
+        val a = att(terms.int(i, 1))
+        if (a.att.isEmpty) ADT.KSequence.raw(children(i, 2)) else ADT.KSequence(children(i, 2), a)
+      case REWRITE => ADT.KRewrite(term(terms.int(i, 1)), term(terms.int(i, 2)), att(terms.int(i, 3)))
+      case INJECTED_LABEL => ADT.InjectedKLabel(label(terms.int(i, 1)), att(terms.int(i, 2)))
+      case SERIALIZED => blob[K](terms.int(i, 1))
+      case tag => corrupted("term", tag)
+    }
+
+    def definition(): Definition = {
+      val decoded = new Array[Module](modules.count)
+      for (i <- decoded.indices) {
+        decoded(i) = module(new Cursor(modules, i), decoded)
+      }
+      val c = new Cursor(definitions, 0)
+      val mainModule = decoded(c.next())
+      val definitionAtt = att(c.next())
+      Definition(mainModule, Seq.fill(c.next())(decoded(c.next())).toSet, definitionAtt)
+    }
+
+    private def module(c: Cursor, decoded: Array[Module]): Module = {
+      val name = string(c.next())
+      val moduleAtt = att(c.next())
+      val imports = Seq.fill(c.next())(decoded(c.next())).toSet
+      val sentences = Seq.fill(c.next())(sentence(c)).toSet
+      Module(name, imports, sentences, moduleAtt)
+    }
+
+    private def sentence(c: Cursor): Sentence = c.next() match {
+      case RULE => Rule(term(c.next()), term(c.next()), term(c.next()), att(c.next()))
+      case CONTEXT => Context(term(c.next()), term(c.next()), att(c.next()))
+      case CONFIGURATION => Configuration(term(c.next()), term(c.next()), att(c.next()))
+      case BUBBLE => Bubble(string(c.next()), string(c.next()), att(c.next()))
+      case MODULE_COMMENT => ModuleComment(string(c.next()), att(c.next()))
+      case SYNTAX_SORT => SyntaxSort(sort(c.next()), att(c.next()))
+      case PRODUCTION =>
+        val productionSort = sort(c.next())
+        val productionAtt = att(c.next())
+        Production(productionSort, Seq.fill(c.next())(productionItem(c)), productionAtt)
+      case SYNTAX_PRIORITY =>
+        val priorityAtt = att(c.next())
+        SyntaxPriority(Seq.fill(c.next())(tagSet(c)), priorityAtt)
+      case SYNTAX_ASSOCIATIVITY =>
+        val assoc = Associativity(c.next())
+        val associativityAtt = att(c.next())
+        SyntaxAssociativity(assoc, tagSet(c), associativityAtt)
+      case SERIALIZED => blob[Sentence](c.next())
+      case tag => corrupted("sentence", tag)
+    }
+
+    private def productionItem(c: Cursor): ProductionItem = c.next() match {
+      case NON_TERMINAL => NonTerminal(sort(c.next()))
+      case TERMINAL => Terminal(string(c.next()), Seq.fill(c.next())(string(c.next())))
+      case REGEX_TERMINAL => RegexTerminal(string(c.next()), string(c.next()), string(c.next()))
+      case tag => corrupted("production item", tag)
+    }
+
+    private def tagSet(c: Cursor): Set[Tag] = Seq.fill(c.next())(Tag(string(c.next()))).toSet
+  }
+}
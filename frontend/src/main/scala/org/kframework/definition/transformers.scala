@@ -62,6 +62,13 @@ class ModuleTransformerException(moduleTransformerName: String, cause: Throwable
   */
 abstract class ModuleTransformer extends (Module => Module) {
   val name: String = this.getClass.getName
+
+  /**
+    * Whether modules which do not import each other may be processed concurrently.
+    * A transformer which returns true must be thread-safe.
+    */
+  def parallelModules: Boolean = false
+
   def wrapExceptions(f: => Module): Module = try {
     f
   } catch {
@@ -74,16 +81,35 @@ abstract class ModuleTransformer extends (Module => Module) {
   * A module transformer with memoization
   */
 abstract class MemoizingModuleTransformer extends ModuleTransformer {
-  val memoization = mutable.Map[Module, Module]()
-  var currentProcessedModules = Stack[Module]()
-
-  override def apply(input: Module): Module = this.synchronized {
-    if (currentProcessedModules.contains(input))
-      throw new AssertionError("Found a cycle on: " + input.name + " with chain: " + currentProcessedModules.map(_.name).toList.reverse.mkString(" -> "))
-    currentProcessedModules = currentProcessedModules.push(input)
-    val res = wrapExceptions(memoization.getOrElseUpdate(input, {processModule(input)}))
-    currentProcessedModules = currentProcessedModules.pop
-    res
+  val memoization: scala.collection.concurrent.Map[Module, Module] = scala.collection.concurrent.TrieMap[Module, Module]()
+  private val currentProcessedModules = new ThreadLocal[Stack[Module]] {
+    override def initialValue = Stack[Module]()
+  }
+
+  /**
+    * The time in milliseconds spent processing each module, including the imports it processed itself.
+    */
+  val moduleMillis: scala.collection.concurrent.Map[String, java.lang.Long] = scala.collection.concurrent.TrieMap[String, java.lang.Long]()
+
+  override def apply(input: Module): Module =
+    if (parallelModules) memoizedApply(input) else this.synchronized { memoizedApply(input) }
+
+  private def memoizedApply(input: Module): Module = memoization.get(input) match {
+    case Some(res) => res
+    case None =>
+      val processed = currentProcessedModules.get
+      if (processed.contains(input))
+        throw new AssertionError("Found a cycle on: " + input.name + " with chain: " + processed.map(_.name).toList.reverse.mkString(" -> "))
+      currentProcessedModules.set(processed.push(input))
+      try {
+        val start = System.currentTimeMillis()
+        val res = wrapExceptions(processModule(input))
+        moduleMillis.putIfAbsent(input.name, Long.box(System.currentTimeMillis() - start))
+        // another thread may have processed the same module meanwhile; all callers get the same result
+        memoization.putIfAbsent(input, res).getOrElse(res)
+      } finally {
+        currentProcessedModules.set(processed)
+      }
   }
 
   protected def processModule(inputModule: Module): Module
@@ -211,14 +237,18 @@ class SelectiveDefinitionTransformer(moduleTransformer: MemoizingModuleTransform
     // TODO: Cosmin: the two lines below are a hack to make sure the modules are processed by the pass regardless of
     // them not being reachable from the main module
     // I think the right fix would be to explicitly import them when needed
-    List("STDIN-STREAM", "STDOUT-STREAM", "BASIC-K", "K", "RULE-PARSER", "CONFIG-CELLS",
+    val extraModules = List("STDIN-STREAM", "STDOUT-STREAM", "BASIC-K", "K", "RULE-PARSER", "CONFIG-CELLS",
       "PROGRAM-LISTS", "K-TERM", "ID-PROGRAM-PARSING", "LANGUAGE-PARSING", "MAP", "DEFAULT-CONFIGURATION",
       "K-REFLECTION")
-      .foreach(d.getModule(_).foreach(moduleTransformer))
-
-    d.entryModules
+      .flatMap(d.getModule(_))
+    val parsingModules = d.entryModules.toList
       .filter(m => m.name.endsWith("-PROGRAM-PARSING") || m.name.endsWith("-SYNTAX"))
-      .foreach(moduleTransformer)
+
+    if (moduleTransformer.parallelModules)
+      processInImportOrder(extraModules ++ parsingModules :+ d.mainModule)
+
+    extraModules.foreach(moduleTransformer)
+    parsingModules.foreach(moduleTransformer)
 
     val newMainModule = moduleTransformer(d.mainModule)
     val newEntryModules = d.entryModules flatMap moduleTransformer.memoization.get
@@ -229,4 +259,30 @@ class SelectiveDefinitionTransformer(moduleTransformer: MemoizingModuleTransform
       newEntryModules, // the trick is that any memoized modules have already been transformed
       d.att)
   }
+
+  /**
+    * Processes the given modules and the modules they import in waves: each wave processes concurrently
+    * the modules whose imports have all been processed by the previous waves.
+    */
+  private def processInImportOrder(modules: List[Module]): Unit = {
+    val allModules = mutable.LinkedHashMap[String, Module]()
+    def visit(m: Module): Unit = if (!allModules.contains(m.name)) {
+      allModules.put(m.name, m)
+      m.imports.foreach(visit)
+    }
+    modules.foreach(visit)
+
+    val processed = mutable.Set[String]()
+    var pending = allModules.values.toList
+    while (pending.nonEmpty) {
+      val (ready, blocked) = pending.partition(_.imports.forall(i => processed.contains(i.name)))
+      if (ready.isEmpty) {
+        // an import cycle; the sequential pass reports it
+        return
+      }
+      ready.par.foreach(moduleTransformer)
+      processed ++= ready.map(_.name)
+      pending = blocked
+    }
+  }
 }
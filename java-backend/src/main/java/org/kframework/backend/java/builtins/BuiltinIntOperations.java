@@ -8,24 +8,63 @@ import java.util.Random;
 
 /**
  * Table of {@code public static} methods on builtin integers.
+ * <p>
+ * The operations compute on {@code long} values when both operands fit in a {@code long} and the result
+ * cannot overflow, and on {@link BigInteger} values otherwise.
  *
  * @author: AndreiS
  */
 public class BuiltinIntOperations {
 
     public static IntToken add(IntToken term1, IntToken term2, TermContext context) {
+        if (term1.isLong() && term2.isLong()) {
+            long value1 = term1.longValue();
+            long value2 = term2.longValue();
+            long result = value1 + value2;
+            if (((value1 ^ result) & (value2 ^ result)) >= 0) {
+                return IntToken.of(result);
+            }
+        }
         return IntToken.of(term1.bigIntegerValue().add(term2.bigIntegerValue()));
     }
 
     public static IntToken sub(IntToken term1, IntToken term2, TermContext context) {
+        if (term1.isLong() && term2.isLong()) {
+            long value1 = term1.longValue();
+            long value2 = term2.longValue();
+            long result = value1 - value2;
+            if (((value1 ^ value2) & (value1 ^ result)) >= 0) {
+                return IntToken.of(result);
+            }
+        }
         return IntToken.of(term1.bigIntegerValue().subtract(term2.bigIntegerValue()));
     }
 
     public static IntToken mul(IntToken term1, IntToken term2, TermContext context) {
+        if (term1.isLong() && term2.isLong()) {
+            long value1 = term1.longValue();
+            long value2 = term2.longValue();
+            long result = value1 * value2;
+            /* the overflow check of Math.multiplyExact */
+            if (((Math.abs(value1) | Math.abs(value2)) >>> 31 == 0)
+                    || ((value2 == 0 || result / value2 == value1) && !(value1 == Long.MIN_VALUE && value2 == -1))) {
+                return IntToken.of(result);
+            }
+        }
         return IntToken.of(term1.bigIntegerValue().multiply(term2.bigIntegerValue()));
     }
 
     public static IntToken div(IntToken term1, IntToken term2, TermContext context) {
+        if (term1.isLong() && term2.isLong()) {
+            long value1 = term1.longValue();
+            long value2 = term2.longValue();
+            if (value2 == 0) {
+                return null;
+            }
+            if (!(value1 == Long.MIN_VALUE && value2 == -1)) {
+                return IntToken.of(value1 / value2);
+            }
+        }
         try {
             return IntToken.of(term1.bigIntegerValue().divide(term2.bigIntegerValue()));
         } catch (ArithmeticException e) {
@@ -44,6 +83,13 @@ public class BuiltinIntOperations {
     }
 
     public static IntToken rem(IntToken term1, IntToken term2, TermContext context) {
+        if (term1.isLong() && term2.isLong()) {
+            long value2 = term2.longValue();
+            if (value2 == 0) {
+                return null;
+            }
+            return IntToken.of(term1.longValue() % value2);
+        }
         try {
             return IntToken.of(term1.bigIntegerValue().remainder(term2.bigIntegerValue()));
         } catch (ArithmeticException e) {
@@ -52,6 +98,9 @@ public class BuiltinIntOperations {
     }
 
     public static IntToken mod(IntToken term1, IntToken term2, TermContext context) {
+        if (term1.isLong() && term2.isLong() && term2.longValue() > 0) {
+            return IntToken.of(Math.floorMod(term1.longValue(), term2.longValue()));
+        }
         return IntToken.of(term1.bigIntegerValue().mod(term2.bigIntegerValue()));
     }
 
@@ -60,69 +109,108 @@ public class BuiltinIntOperations {
     }
 
     public static IntToken shl(IntToken term1, IntToken term2, TermContext context) {
+        if (term1.isLong() && term2.isLong() && term2.longValue() >= 0 && term2.longValue() < Long.SIZE - 1) {
+            long value = term1.longValue();
+            int distance = (int) term2.longValue();
+            long result = value << distance;
+            if (result >> distance == value) {
+                return IntToken.of(result);
+            }
+        }
         return IntToken.of(term1.bigIntegerValue().shiftLeft(term2.bigIntegerValue().intValue()));
     }
 
     public static IntToken shr(IntToken term1, IntToken term2, TermContext context) {
+        if (term1.isLong() && term2.isLong() && term2.longValue() >= 0 && term2.longValue() <= Integer.MAX_VALUE) {
+            return IntToken.of(term1.longValue() >> Math.min(term2.longValue(), Long.SIZE - 1));
+        }
         return IntToken.of(term1.bigIntegerValue().shiftRight(term2.bigIntegerValue().intValue()));
     }
 
     public static IntToken not(IntToken term, TermContext context) {
+        if (term.isLong()) {
+            return IntToken.of(~term.longValue());
+        }
         return IntToken.of(term.bigIntegerValue().not());
     }
 
     public static IntToken and(IntToken term1, IntToken term2, TermContext context) {
+        if (term1.isLong() && term2.isLong()) {
+            return IntToken.of(term1.longValue() & term2.longValue());
+        }
         return IntToken.of(term1.bigIntegerValue().and(term2.bigIntegerValue()));
     }
 
     public static IntToken or(IntToken term1, IntToken term2, TermContext context) {
+        if (term1.isLong() && term2.isLong()) {
+            return IntToken.of(term1.longValue() | term2.longValue());
+        }
         return IntToken.of(term1.bigIntegerValue().or(term2.bigIntegerValue()));
     }
 
     public static IntToken xor(IntToken term1, IntToken term2, TermContext context) {
+        if (term1.isLong() && term2.isLong()) {
+            return IntToken.of(term1.longValue() ^ term2.longValue());
+        }
         return IntToken.of(term1.bigIntegerValue().xor(term2.bigIntegerValue()));
     }
 
     public static IntToken min(IntToken term1, IntToken term2, TermContext context) {
+        if (term1.isLong() && term2.isLong()) {
+            return Math.min(term1.longValue(), term2.longValue()) == term1.longValue() ? term1 : term2;
+        }
         return IntToken.of(term1.bigIntegerValue().min(term2.bigIntegerValue()));
     }
 
     public static IntToken max(IntToken term1, IntToken term2, TermContext context) {
+        if (term1.isLong() && term2.isLong()) {
+            return Math.max(term1.longValue(), term2.longValue()) == term1.longValue() ? term1 : term2;
+        }
         return IntToken.of(term1.bigIntegerValue().max(term2.bigIntegerValue()));
     }
 
     public static IntToken abs(IntToken term, TermContext context) {
+        if (term.isLong() && term.longValue() != Long.MIN_VALUE) {
+            return term.longValue() >= 0 ? term : IntToken.of(-term.longValue());
+        }
         return IntToken.of(term.bigIntegerValue().abs());
     }
 
     public static BoolToken eq(IntToken term1, IntToken term2, TermContext context) {
-        return BoolToken.of(term1.bigIntegerValue().compareTo(term2.bigIntegerValue()) == 0);
+        return BoolToken.of(compare(term1, term2) == 0);
     }
 
     public static BoolToken ne(IntToken term1, IntToken term2, TermContext context) {
-        return BoolToken.of(term1.bigIntegerValue().compareTo(term2.bigIntegerValue()) != 0);
+        return BoolToken.of(compare(term1, term2) != 0);
     }
 
     public static BoolToken gt(IntToken term1, IntToken term2, TermContext context) {
-        return BoolToken.of(term1.bigIntegerValue().compareTo(term2.bigIntegerValue()) > 0);
+        return BoolToken.of(compare(term1, term2) > 0);
     }
 
     public static BoolToken ge(IntToken term1, IntToken term2, TermContext context) {
-        return BoolToken.of(term1.bigIntegerValue().compareTo(term2.bigIntegerValue()) >= 0);
+        return BoolToken.of(compare(term1, term2) >= 0);
     }
 
     public static BoolToken lt(IntToken term1, IntToken term2, TermContext context) {
-        return BoolToken.of(term1.bigIntegerValue().compareTo(term2.bigIntegerValue()) < 0);
+        return BoolToken.of(compare(term1, term2) < 0);
     }
 
     public static BoolToken le(IntToken term1, IntToken term2, TermContext context) {
-        return BoolToken.of(term1.bigIntegerValue().compareTo(term2.bigIntegerValue()) <= 0);
+        return BoolToken.of(compare(term1, term2) <= 0);
+    }
+
+    private static int compare(IntToken term1, IntToken term2) {
+        if (term1.isLong() && term2.isLong()) {
+            return Long.compare(term1.longValue(), term2.longValue());
+        }
+        return term1.bigIntegerValue().compareTo(term2.bigIntegerValue());
     }
 
     private static final Random randomGenerator = new Random();
 
     public static IntToken rand(IntToken upperBound, TermContext context) {
-        if (upperBound.bigIntegerValue().compareTo(BigInteger.valueOf(Integer.MAX_VALUE)) > 0) {
+        if (upperBound.isLong() ? upperBound.longValue() > Integer.MAX_VALUE : upperBound.bigIntegerValue().signum() > 0) {
             return null;
         }
         return IntToken.of(randomGenerator.nextInt(upperBound.intValue()));
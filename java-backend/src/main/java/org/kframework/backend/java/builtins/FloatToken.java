@@ -1,6 +1,7 @@
 // Copyright (c) 2014-2016 K Team. All Rights Reserved.
 package org.kframework.backend.java.builtins;
 
+import com.google.common.cache.CacheBuilder;
 import org.apache.commons.lang3.tuple.Pair;
 import org.kframework.backend.java.kil.Sort;
 import org.kframework.backend.java.kil.Token;
@@ -12,15 +13,15 @@ import org.kframework.kil.FloatBuiltin;
 import org.kframework.mpfr.BigFloat;
 import org.kframework.utils.errorsystem.KEMException;
 
-import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class FloatToken extends Token {
 
     public static final Sort SORT = Sort.FLOAT;
 
-    /* Token cache */
-    private static final Map<Integer, Map<BigFloat, FloatToken>> cache = new ConcurrentHashMap<>();
+    /* Token cache, by exponent range; the tokens are weakly referenced, as in the StringToken cache */
+    private static final ConcurrentMap<Integer, ConcurrentMap<BigFloat, FloatToken>> cache = new ConcurrentHashMap<>();
 
     private final BigFloat value;
     private final int exponent;
@@ -37,8 +38,22 @@ public class FloatToken extends Token {
      * and {@code int} exponent return the same {@code FloatToken} object).
      */
     public static FloatToken of(BigFloat value, int exponent) {
-        Map<BigFloat, FloatToken> exponentCache = cache.computeIfAbsent(exponent, ConcurrentHashMap::new);
-        return exponentCache.computeIfAbsent(value, v -> new FloatToken(v, exponent));
+        return exponentCache(exponent).computeIfAbsent(value, v -> new FloatToken(v, exponent));
+    }
+
+    private static ConcurrentMap<BigFloat, FloatToken> exponentCache(int exponent) {
+        return cache.computeIfAbsent(exponent, e -> CacheBuilder.newBuilder()
+                .weakValues()
+                .<BigFloat, FloatToken>build()
+                .asMap());
+    }
+
+    /**
+     * Returns the number of cached {@code FloatToken} instances, including the instances which are no longer
+     * reachable but have not been evicted yet.
+     */
+    public static long cacheSize() {
+        return cache.values().stream().mapToLong(ConcurrentMap::size).sum();
     }
 
     public static FloatToken of(String value) {
@@ -131,8 +146,7 @@ public class FloatToken extends Token {
      * instance.
      */
     private Object readResolve() {
-        Map<BigFloat, FloatToken> exponentCache = cache.computeIfAbsent(exponent, ConcurrentHashMap::new);
-        return exponentCache.computeIfAbsent(value, v -> this);
+        return exponentCache(exponent).computeIfAbsent(value, v -> this);
     }
 
 }
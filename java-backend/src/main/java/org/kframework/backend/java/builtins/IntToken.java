@@ -12,6 +12,11 @@ import java.math.BigInteger;
 
 /**
  * An integer token. Integer tokens have arbitrary precision.
+ * <p>
+ * An integer which fits in a {@code long} is held as a {@code long}, and its {@link BigInteger}
+ * representation is only built on demand; the operations in {@link BuiltinIntOperations} compute on the
+ * {@code long} representation and only fall back to {@code BigInteger} on overflow. The tokens of the
+ * integers in [{@value #MIN_INTERNED}, {@value #MAX_INTERNED}] are interned.
  *
  * @author AndreiS
  */
@@ -19,25 +24,56 @@ public final class IntToken extends Token {
 
     public static final Sort SORT = Sort.INT;
 
-    /* BigInteger javaBackendValue wrapped by this IntToken */
-    private final BigInteger value;
+    private static final int MIN_INTERNED = -1024;
+    private static final int MAX_INTERNED = 1024;
+    private static final IntToken[] interned = new IntToken[MAX_INTERNED - MIN_INTERNED + 1];
+
+    static {
+        for (int i = 0; i < interned.length; i++) {
+            interned[i] = new IntToken(MIN_INTERNED + i, null);
+        }
+    }
+
+    /* whether the value wrapped by this IntToken fits in a long */
+    private final boolean isLong;
+    /* the value wrapped by this IntToken, if it fits in a long */
+    private final long longValue;
+    /* BigInteger javaBackendValue wrapped by this IntToken; computed lazily if the value fits in a long */
+    private BigInteger value;
+
+    private IntToken(long longValue, BigInteger value) {
+        this.isLong = true;
+        this.longValue = longValue;
+        this.value = value;
+    }
 
     private IntToken(BigInteger value) {
+        this.isLong = false;
+        this.longValue = 0;
         this.value = value;
     }
 
     /**
      * Returns a {@code IntToken} representation of the given {@link BigInteger} javaBackendValue. The
-     * {@code IntToken} instances are cached to ensure uniqueness (subsequent invocations of this
-     * method with the same {@code BigInteger} javaBackendValue return the same {@code IntToken} object).
+     * {@code IntToken} instances of small values are cached to ensure uniqueness (subsequent invocations
+     * of this method with the same small {@code BigInteger} javaBackendValue return the same
+     * {@code IntToken} object).
      */
     public static IntToken of(BigInteger value) {
         assert value != null;
+        if (value.bitLength() < Long.SIZE) {
+            long longValue = value.longValue();
+            return isInterned(longValue) ? interned[(int) longValue - MIN_INTERNED] : new IntToken(longValue, value);
+        }
         return new IntToken(value);
     }
 
     public static IntToken of(long value) {
-        return of(BigInteger.valueOf(value));
+        return isInterned(value) ? interned[(int) value - MIN_INTERNED] : new IntToken(value, null);
+    }
+
+    private static boolean isInterned(long value) {
+        return MIN_INTERNED <= value && value <= MAX_INTERNED;
     }
 
     public static IntToken of(String value) {
@@ -54,11 +90,24 @@ public final class IntToken extends Token {
         }
     }
 
+    /**
+     * Returns true if the (interpreted) javaBackendValue of this IntToken fits in a {@code long}, that is,
+     * if {@link #longValue()} does not throw.
+     */
+    public boolean isLong() {
+        return isLong;
+    }
+
     /**
      * Returns a {@link BigInteger} representation of the (interpreted) javaBackendValue of this IntToken.
      */
     public BigInteger bigIntegerValue() {
-        return value;
+        BigInteger bigIntegerValue = value;
+        if (bigIntegerValue == null) {
+            bigIntegerValue = BigInteger.valueOf(longValue);
+            value = bigIntegerValue;
+        }
+        return bigIntegerValue;
     }
 
     /**
@@ -67,13 +116,13 @@ public final class IntToken extends Token {
      * @throws ArithmeticException Integer does not fit in an int.
      */
     public int intValue() {
-        if (value.compareTo(BigInteger.valueOf(Integer.MAX_VALUE)) > 0) {
+        if (isLong ? longValue > Integer.MAX_VALUE : value.signum() > 0) {
             throw new ArithmeticException("IntToken too large for Int");
         }
-        if (value.compareTo(BigInteger.valueOf(Integer.MIN_VALUE)) < 0) {
+        if (isLong ? longValue < Integer.MIN_VALUE : value.signum() < 0) {
             throw new ArithmeticException("IntToken too low for Int");
         }
-        return (int)value.longValue();
+        return (int) longValue;
     }
 
     /**
@@ -82,13 +131,13 @@ public final class IntToken extends Token {
      * @throws ArithmeticException Integer does not fit in a long.
      */
     public long longValue() {
-        if (value.compareTo(BigInteger.valueOf(Long.MAX_VALUE)) > 0) {
-            throw new ArithmeticException("IntToken too large for Long");
-        }
-        if (value.compareTo(BigInteger.valueOf(Long.MIN_VALUE)) < 0) {
+        if (!isLong) {
+            if (value.signum() > 0) {
+                throw new ArithmeticException("IntToken too large for Long");
+            }
             throw new ArithmeticException("IntToken too low for Long");
         }
-        return value.longValue();
+        return longValue;
     }
 
     /**
@@ -97,13 +146,13 @@ public final class IntToken extends Token {
      * @throws ArithmeticException Integer is not in the range of an unsigned byte.
      */
     public byte unsignedByteValue() {
-        if (value.compareTo(BigInteger.valueOf(255)) > 0) {
+        if (isLong ? longValue > 255 : value.signum() > 0) {
             throw new ArithmeticException("IntToken too large for byte");
         }
-        if (value.compareTo(BigInteger.valueOf(0)) < 0) {
+        if (isLong ? longValue < 0 : value.signum() < 0) {
             throw new ArithmeticException("IntToken too low for byte");
         }
-        return (byte)value.longValue();
+        return (byte) longValue;
     }
 
     @Override
@@ -116,12 +165,12 @@ public final class IntToken extends Token {
      */
     @Override
     public String javaBackendValue() {
-        return value.toString();
+        return isLong ? Long.toString(longValue) : value.toString();
     }
 
     @Override
     protected int computeHash() {
-        return value.hashCode();
+        return isLong ? Long.hashCode(longValue) : value.hashCode();
     }
 
     @Override
@@ -131,8 +180,11 @@ public final class IntToken extends Token {
 
         IntToken intToken = (IntToken) o;
 
-        return value.equals(intToken.value);
-
+        /* the value of an IntToken is held as a long whenever it fits in one */
+        if (isLong != intToken.isLong) {
+            return false;
+        }
+        return isLong ? longValue == intToken.longValue : value.equals(intToken.value);
     }
 
     @Override
@@ -145,4 +197,11 @@ public final class IntToken extends Token {
         visitor.visit(this);
     }
 
+    /**
+     * Returns the interned instance of a small value.
+     */
+    private Object readResolve() {
+        return isLong && isInterned(longValue) ? interned[(int) longValue - MIN_INTERNED] : this;
+    }
+
 }
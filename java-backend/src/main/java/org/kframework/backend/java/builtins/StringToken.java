@@ -1,6 +1,7 @@
 // Copyright (c) 2013-2016 K Team. All Rights Reserved.
 package org.kframework.backend.java.builtins;
 
+import com.google.common.cache.CacheBuilder;
 import org.kframework.backend.java.kil.Sort;
 import org.kframework.backend.java.kil.Token;
 import org.kframework.backend.java.symbolic.Transformer;
@@ -14,8 +15,7 @@ import java.nio.CharBuffer;
 import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
 import java.nio.charset.CodingErrorAction;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * A string token. String tokens represent a sequence of unicode code points.
@@ -28,8 +28,15 @@ public final class StringToken extends Token {
 
     public static final Sort SORT = Sort.STRING;
 
-    /* StringToken cache */
-    private static final Map<String, StringToken> cache = new ConcurrentHashMap<>();
+    /*
+     * StringToken cache. The tokens are weakly referenced, so that the strings which are no longer used by any
+     * term are not retained. A token is only evicted once it is unreachable, so that the cached token of a value
+     * is unique among the reachable tokens, which is all that identity equality relies on.
+     */
+    private static final ConcurrentMap<String, StringToken> cache = CacheBuilder.newBuilder()
+            .weakValues()
+            .<String, StringToken>build()
+            .asMap();
 
     /* String javaBackendValue wrapped by this StringToken */
     private final String value;
@@ -49,6 +56,14 @@ public final class StringToken extends Token {
         return cache.computeIfAbsent(value, StringToken::new);
     }
 
+    /**
+     * Returns the number of cached {@code StringToken} instances, including the instances which are no longer
+     * reachable but have not been evicted yet.
+     */
+    public static long cacheSize() {
+        return cache.size();
+    }
+
     /**
      * Returns a {@code StringToklen} representation of a given {@code byte[]} javaBackendValue. This javaBackendValue is
      * interpreted as a sequence of code points in the Latin-1 Unicode block according to the
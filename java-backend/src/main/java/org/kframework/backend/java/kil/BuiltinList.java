@@ -8,6 +8,8 @@ import org.kframework.backend.java.util.Constants;
 import org.kframework.builtin.KLabels;
 import org.kframework.kil.ASTNode;
 import org.kframework.utils.BitSet;
+import org.pcollections.PVector;
+import org.pcollections.TreePVector;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -15,25 +17,31 @@ import java.util.stream.Collectors;
 
 /**
  * Class representing an associative list.
+ * <p>
+ * The children are held in a persistent vector, so that lists built from other lists (by concatenation,
+ * by taking a range, or by replacing a child) share structure with them instead of copying them.
  */
 public class BuiltinList extends Collection implements CollectionInternalRepresentation, HasGlobalContext {
 
     /**
      * Flattened list of children.
      */
-    public final ImmutableList<Term> children;
+    public final PVector<Term> children;
     public final Sort sort;
     public final KLabelConstant operatorKLabel;
     public final KLabelConstant unitKLabel;
     private final GlobalContext global;
 
-    private final ElementTailSplit elementTailSplits[];
+    /**
+     * Allocated on the first call to {@link #splitElementTail}, as only rule patterns are split.
+     */
+    private ElementTailSplit elementTailSplits[];
 
     /**
      * Private constructor used by {@link BuiltinList.Builder}.
      */
     private BuiltinList(
-            ImmutableList<Term> children,
+            PVector<Term> children,
             Sort sort,
             KLabelConstant operatorKLabel,
             KLabelConstant unitKLabel,
@@ -44,8 +52,6 @@ public class BuiltinList extends Collection implements CollectionInternalReprese
         this.operatorKLabel = operatorKLabel;
         this.unitKLabel = unitKLabel;
         this.global = global;
-
-        elementTailSplits = new ElementTailSplit[children.size()];
     }
 
     /**
@@ -77,6 +83,9 @@ public class BuiltinList extends Collection implements CollectionInternalReprese
      * Returns the element component and the tail component of the list child on position index.
      */
     public ElementTailSplit splitElementTail(int index, int bitSetLength) {
+        if (elementTailSplits == null) {
+            elementTailSplits = new ElementTailSplit[children.size()];
+        }
         if (elementTailSplits[index] == null) {
             BitSet emptyListMask = BitSet.apply(bitSetLength);
             emptyListMask.makeOnes(bitSetLength);
@@ -163,10 +172,59 @@ public class BuiltinList extends Collection implements CollectionInternalReprese
         return term instanceof Variable && (term.sort().equals(sort) || term.sort().equals(Sort.KSEQUENCE));
     }
 
+    /**
+     * Returns the list of the children from {@code beginIndex} (inclusive) to {@code endIndex} (exclusive),
+     * which shares structure with this list.
+     */
     public Term range(int beginIndex, int endIndex) {
-        return BuiltinList.builder(sort, operatorKLabel, unitKLabel, global)
-                .addAll(children.subList(beginIndex, endIndex))
-                .build();
+        if (beginIndex < 0 || endIndex > children.size() || beginIndex > endIndex) {
+            throw new IndexOutOfBoundsException("range [" + beginIndex + ", " + endIndex + ") of a list of size " + children.size());
+        }
+        if (beginIndex == 0 && endIndex == children.size()) {
+            return this;
+        }
+        // removing a child and adding one both take logarithmic time, so do whichever needs fewer of them
+        PVector<Term> rangeChildren;
+        if (endIndex - beginIndex <= children.size() - (endIndex - beginIndex)) {
+            rangeChildren = TreePVector.empty();
+            for (int i = beginIndex; i < endIndex; i++) {
+                rangeChildren = rangeChildren.plus(children.get(i));
+            }
+        } else {
+            rangeChildren = children;
+            for (int i = children.size() - 1; i >= endIndex; i--) {
+                rangeChildren = rangeChildren.minus(i);
+            }
+            for (int i = 0; i < beginIndex; i++) {
+                rangeChildren = rangeChildren.minus(0);
+            }
+        }
+        return of(rangeChildren, sort, operatorKLabel, unitKLabel, global);
+    }
+
+    /**
+     * Returns this list with the child at the given index replaced by the given term, which shares structure with
+     * this list. The children of the given term are spliced in if it is a list of the same kind, as by {@link Builder}.
+     */
+    public Term with(int index, Term child) {
+        if (isSameList(child)) {
+            return builder(sort, operatorKLabel, unitKLabel, global)
+                    .add(range(0, index))
+                    .add(child)
+                    .add(range(index + 1, children.size()))
+                    .build();
+        }
+        return of(children.with(index, child), sort, operatorKLabel, unitKLabel, global);
+    }
+
+    private boolean isSameList(Term term) {
+        return term instanceof BuiltinList && sort.equals(term.sort())
+                && operatorKLabel.equals(((BuiltinList) term).operatorKLabel)
+                && unitKLabel.equals(((BuiltinList) term).unitKLabel);
+    }
+
+    private static Term of(PVector<Term> children, Sort sort, KLabelConstant operatorKLabel, KLabelConstant unitKLabel, GlobalContext global) {
+        return children.size() == 1 ? children.get(0) : new BuiltinList(children, sort, operatorKLabel, unitKLabel, global);
     }
 
     public boolean contains(Term term) {
@@ -289,7 +347,7 @@ public class BuiltinList extends Collection implements CollectionInternalReprese
 
     public static class Builder {
 
-        private final ImmutableList.Builder<Term> childrenBuilder = new ImmutableList.Builder<>();
+        private PVector<Term> children = TreePVector.empty();
         private final Sort sort;
         private final KLabelConstant operatorKLabel;
         private final KLabelConstant unitKLabel;
@@ -306,13 +364,15 @@ public class BuiltinList extends Collection implements CollectionInternalReprese
             if (term instanceof BuiltinList && sort.equals(term.sort())
                     && operatorKLabel.equals(((BuiltinList) term).operatorKLabel)
                     && unitKLabel.equals(((BuiltinList) term).unitKLabel)) {
-                return addAll(((BuiltinList) term).children);
+                // the children of a list are already flattened
+                PVector<Term> listChildren = ((BuiltinList) term).children;
+                children = children.isEmpty() ? listChildren : children.plusAll(listChildren);
             } else {
                 //assert global.getDefinition().subsorts().isSubsortedEq(sort, term.sort()) :
                 //        "unexpected term: " + term + " of sort " + term.sort() + " added to list of sort " + sort;
-                childrenBuilder.add(term);
-                return this;
+                children = children.plus(term);
             }
+            return this;
         }
 
         public Builder addAll(List<Term> terms) {
@@ -328,13 +388,7 @@ public class BuiltinList extends Collection implements CollectionInternalReprese
         }
 
         public Term build() {
-            BuiltinList builtinList = new BuiltinList(
-                    childrenBuilder.build(),
-                    sort,
-                    operatorKLabel,
-                    unitKLabel,
-                    global);
-            return builtinList.size() == 1 ? builtinList.get(0) : builtinList;
+            return of(children, sort, operatorKLabel, unitKLabel, global);
         }
     }
 
@@ -353,7 +407,7 @@ public class BuiltinList extends Collection implements CollectionInternalReprese
      */
     public static class SingletonBuiltinList extends BuiltinList {
         private SingletonBuiltinList(Term child, GlobalContext global, Sort sort, KLabelConstant operatorKLabel, KLabelConstant unitKLabel) {
-            super(ImmutableList.of(child), sort, operatorKLabel, unitKLabel, global);
+            super(TreePVector.singleton(child), sort, operatorKLabel, unitKLabel, global);
         }
     }
 
@@ -11,12 +11,12 @@ import org.kframework.utils.errorsystem.KEMException;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
-import org.apache.commons.collections4.map.UnmodifiableMap;
+import org.pcollections.HashTreePMap;
+import org.pcollections.PMap;
 
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableMultiset;
@@ -25,18 +25,21 @@ import com.google.common.collect.Lists;
 
 /**
  * Class representing a map.
+ * <p>
+ * The entries are kept in a persistent hash map, so that a map obtained by updating or removing a
+ * few keys of another map shares the structure of the original one instead of copying it.
  *
  * @author AndreiS
  */
 public class BuiltinMap extends AssociativeCommutativeCollection {
 
-    private final UnmodifiableMap<Term, Term> entries;
+    private final PMap<Term, Term> entries;
 
     /**
      * Private efficient constructor used by {@link BuiltinMap.Builder}.
      */
     private BuiltinMap(
-            UnmodifiableMap<Term, Term> entries,
+            PMap<Term, Term> entries,
             ImmutableMultiset<KItem> collectionPatterns,
             ImmutableMultiset<Term> collectionFunctions,
             ImmutableMultiset<Variable> collectionVariables,
@@ -66,7 +69,7 @@ public class BuiltinMap extends AssociativeCommutativeCollection {
         return entries.get(key);
     }
 
-    public UnmodifiableMap<Term, Term> getEntries() {
+    public Map<Term, Term> getEntries() {
         return entries;
     }
 
@@ -171,7 +174,7 @@ public class BuiltinMap extends AssociativeCommutativeCollection {
 
     public static class Builder {
 
-        private final Map<Term, Term> entries = new HashMap<>();
+        private PMap<Term, Term> entries = HashTreePMap.empty();
         private final ImmutableMultiset.Builder<KItem> patternsBuilder = new ImmutableMultiset.Builder<>();
         private final ImmutableMultiset.Builder<Term> functionsBuilder = new ImmutableMultiset.Builder<>();
         private final ImmutableMultiset.Builder<Variable> variablesBuilder = new ImmutableMultiset.Builder<>();
@@ -182,7 +185,7 @@ public class BuiltinMap extends AssociativeCommutativeCollection {
         }
 
         public void put(Term key, Term value) {
-            entries.put(key, value);
+            entries = entries.plus(key, value);
         }
 
         /**
@@ -190,15 +193,19 @@ public class BuiltinMap extends AssociativeCommutativeCollection {
          * built.
          */
         public void putAll(Map<? extends Term, ? extends Term> map) {
-            entries.putAll(map);
+            entries = entries.plusAll(map);
         }
 
         public Term remove(Term key) {
-            return entries.remove(key);
+            Term value = entries.get(key);
+            if (value != null) {
+                entries = entries.minus(key);
+            }
+            return value;
         }
 
         public Map<Term, Term> getEntries() {
-            return UnmodifiableMap.unmodifiableMap(entries);
+            return entries;
         }
 
         private void concatenate(Term term, boolean update) {
@@ -211,13 +218,29 @@ public class BuiltinMap extends AssociativeCommutativeCollection {
             if (term instanceof BuiltinMap) {
                 BuiltinMap map = (BuiltinMap) term;
 
-                if (!update && entries.keySet().stream().anyMatch(key -> map.entries.containsKey(key) && !entries.get(key).equals(map.entries.get(key)))) {
-                    List<Triple<Term, Term, Term>> clashingKeys = entries.keySet().stream().filter(map.entries::containsKey).map(k -> Triple.of(k, entries.get(k), map.entries.get(k))).collect(Collectors.toList());
-                    throw KEMException.criticalError("failed to concatenate maps with common keys: "
-                            + clashingKeys);
+                PMap<Term, Term> entries = this.entries;
+                if (!update) {
+                    Map<Term, Term> smaller = entries.size() < map.entries.size() ? entries : map.entries;
+                    Map<Term, Term> larger = smaller == entries ? map.entries : entries;
+                    if (smaller.keySet().stream().anyMatch(key -> larger.containsKey(key) && !smaller.get(key).equals(larger.get(key)))) {
+                        List<Triple<Term, Term, Term>> clashingKeys = entries.keySet().stream().filter(map.entries::containsKey).map(k -> Triple.of(k, entries.get(k), map.entries.get(k))).collect(Collectors.toList());
+                        throw KEMException.criticalError("failed to concatenate maps with common keys: "
+                                + clashingKeys);
+                    }
                 }
 
-                entries.putAll(map.entries);
+                /* add the smaller map to the larger one; the entries of the concatenated map win */
+                if (entries.size() < map.entries.size()) {
+                    PMap<Term, Term> result = map.entries;
+                    for (Map.Entry<Term, Term> entry : entries.entrySet()) {
+                        if (!result.containsKey(entry.getKey())) {
+                            result = result.plus(entry.getKey(), entry.getValue());
+                        }
+                    }
+                    this.entries = result;
+                } else {
+                    this.entries = entries.plusAll(map.entries);
+                }
                 patternsBuilder.addAll(map.collectionPatterns);
                 functionsBuilder.addAll(map.collectionFunctions);
                 variablesBuilder.addAll(map.collectionVariables);
@@ -260,12 +283,8 @@ public class BuiltinMap extends AssociativeCommutativeCollection {
         }
 
         public Term build() {
-            // YilongL: Guava's ImmutableMap.copyOf(entries) is not smart enough
-            // to avoid actually copying the entries, because entries is not an
-            // ImmutableMap yet; using Apache's decorate method because it would
-            // avoid creating nesting wrappers
             BuiltinMap builtinMap = new BuiltinMap(
-                    (UnmodifiableMap<Term, Term>) UnmodifiableMap.unmodifiableMap(entries),
+                    entries,
                     patternsBuilder.build(),
                     functionsBuilder.build(),
                     variablesBuilder.build(),
@@ -10,27 +10,31 @@ import org.kframework.utils.errorsystem.KEMException;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import org.pcollections.HashTreePSet;
+import org.pcollections.PSet;
+
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableMultiset;
-import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 
 
 /**
  * Class representing a set.
+ * <p>
+ * The elements are kept in a persistent hash set, which shares its structure with the sets it was
+ * obtained from (see {@link BuiltinMap}).
  *
  * @author AndreiS
  */
 public class BuiltinSet extends AssociativeCommutativeCollection {
 
-    private final ImmutableSet<Term> elements;
+    private final PSet<Term> elements;
 
     private BuiltinSet(
-            ImmutableSet<Term> elements,
+            PSet<Term> elements,
             ImmutableMultiset<KItem> collectionPatterns,
             ImmutableMultiset<Term> collectionFunctions,
             ImmutableMultiset<Variable> collectionVariables,
@@ -159,7 +163,7 @@ public class BuiltinSet extends AssociativeCommutativeCollection {
 
     public static class Builder {
 
-        private final Set<Term> elements = new HashSet<>();
+        private PSet<Term> elements = HashTreePSet.empty();
         private final ImmutableMultiset.Builder<KItem> patternsBuilder = new ImmutableMultiset.Builder<>();
         private final ImmutableMultiset.Builder<Term> functionsBuilder = new ImmutableMultiset.Builder<>();
         private final ImmutableMultiset.Builder<Variable> variablesBuilder = new ImmutableMultiset.Builder<>();
@@ -170,16 +174,26 @@ public class BuiltinSet extends AssociativeCommutativeCollection {
         }
 
         public boolean add(Term element) {
-            return elements.add(element);
+            if (elements.contains(element)) {
+                return false;
+            }
+            elements = elements.plus(element);
+            return true;
         }
 
         public <T extends Term> boolean addAll(Collection<T> elements) {
             // elements refers to the one in the outer class
-            return this.elements.addAll(elements);
+            int size = this.elements.size();
+            this.elements = this.elements.plusAll(elements);
+            return this.elements.size() != size;
         }
 
         public boolean remove(Term element) {
-            return elements.remove(element);
+            if (!elements.contains(element)) {
+                return false;
+            }
+            elements = elements.minus(element);
+            return true;
         }
 
         /**
@@ -195,7 +209,10 @@ public class BuiltinSet extends AssociativeCommutativeCollection {
 
                 if (term instanceof BuiltinSet) {
                     BuiltinSet set = (BuiltinSet) term;
-                    elements.addAll(set.elements);
+                    /* add the smaller set to the larger one */
+                    elements = elements.size() < set.elements.size()
+                            ? set.elements.plusAll(elements)
+                            : elements.plusAll(set.elements);
                     patternsBuilder.addAll(set.collectionPatterns);
                     functionsBuilder.addAll(set.collectionFunctions);
                     variablesBuilder.addAll(set.collectionVariables);
@@ -213,7 +230,7 @@ public class BuiltinSet extends AssociativeCommutativeCollection {
 
         public Term build() {
             BuiltinSet builtinSet = new BuiltinSet(
-                    ImmutableSet.copyOf(elements),
+                    elements,
                     patternsBuilder.build(),
                     functionsBuilder.build(),
                     variablesBuilder.build(),
@@ -12,6 +12,8 @@ import com.google.common.collect.SetMultimap;
 import org.kframework.attributes.Att;
 import org.kframework.backend.java.MiniKoreUtils;
 import org.kframework.backend.java.compile.KOREtoBackendKIL;
+import org.kframework.backend.java.symbolic.FastRuleMatcher;
+import org.kframework.backend.java.symbolic.RuleIndex;
 import org.kframework.backend.java.symbolic.Transformer;
 import org.kframework.backend.java.symbolic.Visitor;
 import org.kframework.backend.java.util.Subsorts;
@@ -103,6 +105,11 @@ public class Definition extends JavaSymbolicObject {
 
     public final Map<Integer, Integer> reverseRuleTable = new HashMap<>();
 
+    /**
+     * the index of {@link #ruleTable} giving the initial rule mask of a subject
+     */
+    private transient volatile RuleIndex ruleIndex;
+
     private final Map<KItem.CacheTableColKey, KItem.CacheTableValue> sortCacheTable = new HashMap<>();
 
     public Definition(org.kframework.definition.Module module, KExceptionManager kem) {
@@ -313,6 +320,7 @@ public class Definition extends JavaSymbolicObject {
                 ));
         if (koreAutomaton.isPresent()) {
             automaton = transformer.convert(Optional.of(module), koreAutomaton.get());
+            ruleTable.forEach((index, rule) -> rule.setAutomatonLeftHandSide(FastRuleMatcher.getLeftHandSide(automaton.leftHandSide(), index)));
         }
     }
 
@@ -326,6 +334,20 @@ public class Definition extends JavaSymbolicObject {
         this.context = null;
     }
 
+    public RuleIndex ruleIndex() {
+        RuleIndex index = ruleIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = ruleIndex;
+                if (index == null) {
+                    index = new RuleIndex(ruleTable);
+                    ruleIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
     public void addKLabel(KLabelConstant kLabel) {
         kLabels.add(kLabel);
     }
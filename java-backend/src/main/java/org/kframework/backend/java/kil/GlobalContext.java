@@ -2,6 +2,8 @@
 
 package org.kframework.backend.java.kil;
 
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import org.kframework.KapiGlobal;
 import org.kframework.backend.java.kil.KItem.KItemOperations;
 import org.kframework.backend.java.symbolic.BuiltinFunction;
@@ -9,6 +11,9 @@ import org.kframework.backend.java.symbolic.Equality.EqualityOperations;
 import org.kframework.backend.java.symbolic.JavaExecutionOptions;
 import org.kframework.backend.java.symbolic.SMTOperations;
 import org.kframework.backend.java.symbolic.Stage;
+import org.kframework.backend.java.util.Coverage;
+import org.kframework.backend.java.util.FunctionMemo;
+import org.kframework.backend.java.util.Profiler;
 import org.kframework.backend.java.util.Z3Wrapper;
 import org.kframework.kast.Kast;
 import org.kframework.krun.KRunOptions;
@@ -25,16 +30,36 @@ import java.util.Map;
 public class GlobalContext implements Serializable {
     private Definition def;
     private transient Kast kastParser = null;
-    public final transient FileSystem fs;
     public final Stage stage;
-    public final transient EqualityOperations equalityOps;
-    public final transient SMTOperations constraintOps;
-    public final transient KItemOperations kItemOps;
-    public final transient KRunOptions krunOptions;
-    public final transient KExceptionManager kem;
-    private final transient Map<String, MethodHandle> hookProvider;
-    public final transient FileUtil files;
-    public final transient GlobalOptions globalOptions;
+    /*
+     * The fields below depend on the options, exception manager and hooks of a single krun call; see rebind.
+     */
+    public transient FileSystem fs;
+    public transient EqualityOperations equalityOps;
+    public transient SMTOperations constraintOps;
+    public transient KItemOperations kItemOps;
+    public transient KRunOptions krunOptions;
+    public transient KExceptionManager kem;
+    private transient boolean deterministicFunctions;
+    private transient SMTOptions smtOptions;
+    private transient Map<String, MethodHandle> hookProvider;
+    public transient FileUtil files;
+    public transient GlobalOptions globalOptions;
+    public transient Profiler profiler;
+    public transient Coverage coverage;
+    public transient FunctionMemo functionMemo;
+    /**
+     * The table of the interned ground {@link KItem}s, or null if they are not interned.
+     *
+     * @see KRunOptions.Experimental#hashCons
+     */
+    public transient Interner<KItem> kItemInterner;
+    /**
+     * The table {@link #kItemInterner} is taken from, kept across {@link #rebind} so that the
+     * {@code KItem}s interned before and after it are interned in the same table.
+     */
+    private transient Interner<KItem> interner;
+    public transient KRunOptions.RHSEvaluation rhsEvaluation;
 
     public GlobalContext(
             FileSystem fs,
@@ -46,16 +71,8 @@ public class GlobalContext implements Serializable {
             Map<String, MethodHandle> hookProvider,
             FileUtil files,
             Stage stage) {
-        this.fs = fs;
-        this.globalOptions = globalOptions;
-        this.krunOptions = krunOptions;
-        this.kem = kem;
-        this.hookProvider = hookProvider;
-        this.files = files;
-        this.equalityOps = new EqualityOperations(() -> def);
-        this.constraintOps = new SMTOperations(() -> def, smtOptions, new Z3Wrapper(smtOptions, kem, globalOptions, files));
-        this.kItemOps = new KItemOperations(stage, deterministicFunctions, kem, this::builtins, globalOptions);
         this.stage = stage;
+        bind(fs, deterministicFunctions, globalOptions, krunOptions, kem, smtOptions, hookProvider, files);
     }
 
     public GlobalContext(
@@ -65,6 +82,51 @@ public class GlobalContext implements Serializable {
         this(g.fs, g.deterministicFunctions, g.globalOptions, g.kRunOptions, g.kem, g.smtOptions, hookProvider, g.files, stage);
     }
 
+    /**
+     * Rebinds the parts of this context which depend on a single krun call to those of the given context, so that
+     * the terms and rules built with this context, such as those of a {@link Definition} reused across the calls
+     * of the K server, see the options, exception manager and hooks of the current call.
+     */
+    public void rebind(GlobalContext global) {
+        bind(global.fs, global.deterministicFunctions, global.globalOptions, global.krunOptions, global.kem,
+                global.smtOptions, global.hookProvider, global.files);
+    }
+
+    private void bind(
+            FileSystem fs,
+            boolean deterministicFunctions,
+            GlobalOptions globalOptions,
+            KRunOptions krunOptions,
+            KExceptionManager kem,
+            SMTOptions smtOptions,
+            Map<String, MethodHandle> hookProvider,
+            FileUtil files) {
+        this.fs = fs;
+        this.deterministicFunctions = deterministicFunctions;
+        this.globalOptions = globalOptions;
+        this.krunOptions = krunOptions;
+        this.kem = kem;
+        this.smtOptions = smtOptions;
+        this.hookProvider = hookProvider;
+        this.files = files;
+        this.profiler = Profiler.of(krunOptions);
+        this.coverage = Coverage.of(krunOptions);
+        this.functionMemo = FunctionMemo.of(krunOptions);
+        if (krunOptions != null && krunOptions.experimental.hashCons) {
+            if (interner == null) {
+                interner = Interners.newWeakInterner();
+            }
+            this.kItemInterner = interner;
+        } else {
+            this.kItemInterner = null;
+        }
+        this.rhsEvaluation = krunOptions != null ? krunOptions.experimental.rhsEvaluation : KRunOptions.RHSEvaluation.INSTRUCTIONS;
+        this.equalityOps = new EqualityOperations(() -> def);
+        this.constraintOps = new SMTOperations(() -> def, smtOptions, new Z3Wrapper(smtOptions, kem, globalOptions, files), kem, files, profiler);
+        this.kItemOps = new KItemOperations(stage, deterministicFunctions, kem, this::builtins, globalOptions);
+        this.builtinFunction = null;
+    }
+
     private transient BuiltinFunction builtinFunction;
     private BuiltinFunction builtins() {
         BuiltinFunction b = builtinFunction;
@@ -9,6 +9,7 @@ import org.kframework.backend.java.builtins.BoolToken;
 import org.kframework.backend.java.builtins.MetaK;
 import org.kframework.backend.java.builtins.SortMembership;
 import org.kframework.backend.java.symbolic.*;
+import org.kframework.backend.java.util.FunctionMemo;
 import org.kframework.backend.java.util.ImpureFunctionException;
 import org.kframework.backend.java.util.Profiler;
 import org.kframework.backend.java.util.RewriteEngineUtils;
@@ -65,6 +66,12 @@ public class KItem extends Term implements KItemRepresentation, HasGlobalContext
 
     private BitSet[] childrenDontCareRuleMask = null;
 
+    /**
+     * Set iff this {@code KItem} is in the interner of {@link #global}, which holds a single
+     * instance of each ground {@code KItem}.
+     */
+    private transient volatile boolean interned = false;
+
     public static KItem of(Term kLabel, Term kList, GlobalContext global) {
         return of(kLabel, kList, global, null, null, null);
     }
@@ -83,7 +90,12 @@ public class KItem extends Term implements KItemRepresentation, HasGlobalContext
         kList = KCollection.upKind(kList, Kind.KLIST);
 
         // TODO(yilongli): break the dependency on the Tool object
-        return new KItem(kLabel, kList, global, global.stage, source, location, childrenDontCareRuleMask);
+        KItem kItem = new KItem(kLabel, kList, global, global.stage, source, location, childrenDontCareRuleMask);
+        if (global.kItemInterner != null && childrenDontCareRuleMask == null && kItem.isGround()) {
+            kItem = global.kItemInterner.intern(kItem);
+            kItem.interned = true;
+        }
+        return kItem;
     }
 
     public KItem(Term kLabel, Term kList, Sort sort, boolean isExactSort) {
@@ -328,7 +340,7 @@ public class KItem extends Term implements KItemRepresentation, HasGlobalContext
          */
         public Term resolveFunctionAndAnywhere(KItem kItem, TermContext context) {
             try {
-                Term result = kItem.isEvaluable() ? evaluateFunction(kItem, context) : kItem.applyAnywhereRules(context);
+                Term result = kItem.isEvaluable() ? evaluateMemoizedFunction(kItem, context) : kItem.applyAnywhereRules(context);
                 if (result instanceof KItem && ((KItem) result).isEvaluable() && result.isGround()) {
                     // we do this check because this warning message can be very large and cause OOM
                     if (options.warnings.includesExceptionType(ExceptionType.HIDDENWARNING) && stage == Stage.REWRITING) {
@@ -359,6 +371,19 @@ public class KItem extends Term implements KItemRepresentation, HasGlobalContext
             }
         }
 
+        private Term evaluateMemoizedFunction(KItem kItem, TermContext context) {
+            FunctionMemo memo = context.global().functionMemo;
+            if (!memo.isMemoized(kItem)) {
+                return evaluateFunction(kItem, context);
+            }
+            Term result = memo.get(kItem);
+            if (result == null) {
+                result = evaluateFunction(kItem, context);
+                memo.put(kItem, result);
+            }
+            return result;
+        }
+
         public boolean isEvaluable(KItem kItem, Definition definition) {
             if (kItem.evaluable != null) {
                 return kItem.evaluable;
@@ -396,7 +421,7 @@ public class KItem extends Term implements KItemRepresentation, HasGlobalContext
             Definition definition = context.definition();
             KLabelConstant kLabelConstant = (KLabelConstant) kItem.kLabel;
 
-            Profiler.startTimer(Profiler.getTimerForFunction(kLabelConstant));
+            context.global().profiler.start(Profiler.Category.FUNCTION, kLabelConstant);
 
             try {
                 KList kList = (KList) kItem.kList;
@@ -553,7 +578,7 @@ public class KItem extends Term implements KItemRepresentation, HasGlobalContext
                 }
                 return kItem;
             } finally {
-                Profiler.stopTimer(Profiler.getTimerForFunction(kLabelConstant));
+                context.global().profiler.stop();
             }
         }
     }
@@ -684,6 +709,9 @@ public class KItem extends Term implements KItemRepresentation, HasGlobalContext
         }
 
         KItem kItem = (KItem) object;
+        if (interned && kItem.interned && global == kItem.global) {
+            return false;
+        }
         return kLabel.equals(kItem.kLabel) && kList.equals(kItem.kList);
     }
 
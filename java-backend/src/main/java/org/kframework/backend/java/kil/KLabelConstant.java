@@ -62,6 +62,12 @@ public class KLabelConstant extends KLabel implements org.kframework.frontend.KL
      */
     private final boolean isPattern;
 
+    /*
+     * boolean flag set iff a production tagged with "memo" generates
+     * this {@code KLabelConstant}
+     */
+    private final boolean isMemo;
+
     private final boolean isSortPredicate;
 
     private final Sort predicateSort;
@@ -100,6 +106,7 @@ public class KLabelConstant extends KLabel implements org.kframework.frontend.KL
         this.isSortPredicate = predicateSort != null;
         this.isFunction = isFunction;
         this.isPattern = isPattern;
+        this.isMemo = productionAttributes.containsKey(Attribute.keyOf(Attribute.MEMO_KEY));
         this.smtlib = smtlib;
     }
 
@@ -148,6 +155,14 @@ public class KLabelConstant extends KLabel implements org.kframework.frontend.KL
         return isPattern;
     }
 
+    /**
+     * Returns true iff a production tagged with "memo" generates
+     * this {@code KLabelConstant}.
+     */
+    public boolean isMemo() {
+        return isMemo;
+    }
+
     /**
      * Returns true if this {@code KLabelConstant} is a sort membership
      * predicate; otherwise, false.
@@ -8,7 +8,10 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Multiset;
 import com.google.common.collect.Sets;
 import org.apache.commons.collections15.list.UnmodifiableList;
+import org.kframework.attributes.Att;
 import org.kframework.backend.java.builtins.BoolToken;
+import org.kframework.backend.java.compile.KOREtoBackendKIL;
+import org.kframework.backend.java.rewritemachine.CompiledRHS;
 import org.kframework.backend.java.rewritemachine.GenerateRHSInstructions;
 import org.kframework.backend.java.rewritemachine.RHSInstruction;
 import org.kframework.backend.java.symbolic.ConjunctiveFormula;
@@ -53,9 +56,21 @@ public class Rule extends JavaSymbolicObject<Rule> {
      */
     private final List<ImmutableList<RHSInstruction>> instructionsOfLookups;
     private final List<RHSInstruction> rhsInstructions;
+    /**
+     * The instructions of the side condition and the lookups, compiled on first use.
+     */
+    private transient List<CompiledRHS> compiledRequires;
+    private transient List<CompiledRHS> compiledLookups;
 
     private final Set<Variable> matchingVariables;
 
+    /**
+     * The side conditions of this rule and the variables bound when it matches in the rule automaton, as used by
+     * {@link org.kframework.backend.java.symbolic.FastRuleMatcher}; set by {@link #setAutomatonLeftHandSide}.
+     * Both are published at once, as the matcher may set them lazily while other threads read them.
+     */
+    private transient volatile AutomatonConstraints automatonConstraints;
+
     // TODO(YilongL): make it final
     private boolean isSortPredicate;
     private final Sort predSort;
@@ -285,10 +300,83 @@ public class Rule extends JavaSymbolicObject<Rule> {
         return rhsInstructions;
     }
 
+    public List<CompiledRHS> compiledRequires() {
+        List<CompiledRHS> compiled = compiledRequires;
+        if (compiled == null) {
+            compiled = ImmutableList.copyOf(instructionsOfRequires.stream().map(CompiledRHS::compile).collect(Collectors.toList()));
+            compiledRequires = compiled;
+        }
+        return compiled;
+    }
+
+    public List<CompiledRHS> compiledLookups() {
+        List<CompiledRHS> compiled = compiledLookups;
+        if (compiled == null) {
+            compiled = ImmutableList.copyOf(instructionsOfLookups.stream().map(CompiledRHS::compile).collect(Collectors.toList()));
+            compiledLookups = compiled;
+        }
+        return compiled;
+    }
+
     public Set<Variable> matchingVariables() {
         return matchingVariables;
     }
 
+    /**
+     * The constraint, made of the lookups and the requires clauses of a rule, which
+     * {@link org.kframework.backend.java.symbolic.FastRuleMatcher} checks when the rule matches, together with
+     * the variables of the constraint and of the left-hand side of the rule in the rule automaton.
+     */
+    public static final class AutomatonConstraint {
+        public final ConjunctiveFormula constraint;
+        public final Set<Variable> variables;
+
+        private AutomatonConstraint(ConjunctiveFormula constraint, Term automatonLeftHandSide) {
+            this.constraint = constraint;
+            this.variables = ImmutableSet.copyOf(Sets.union(automatonLeftHandSide.variableSet(), constraint.variableSet()).stream()
+                    .filter(v -> !v.name().equals(KOREtoBackendKIL.THE_VARIABLE))
+                    .collect(Collectors.toSet()));
+        }
+    }
+
+    /**
+     * The {@link AutomatonConstraint}s of a rule, with and without the requires clauses tagged with the transition
+     * attribute.
+     */
+    private static final class AutomatonConstraints {
+        final AutomatonConstraint withTransitions;
+        final AutomatonConstraint withoutTransitions;
+
+        AutomatonConstraints(AutomatonConstraint withTransitions, AutomatonConstraint withoutTransitions) {
+            this.withTransitions = withTransitions;
+            this.withoutTransitions = withoutTransitions;
+        }
+    }
+
+    /**
+     * Precomputes the {@link AutomatonConstraint}s of this rule from its left-hand side in the rule automaton.
+     */
+    public void setAutomatonLeftHandSide(Term automatonLeftHandSide) {
+        automatonConstraints = new AutomatonConstraints(
+                new AutomatonConstraint(ConjunctiveFormula.of(lookups).addAll(requires), automatonLeftHandSide),
+                new AutomatonConstraint(
+                        ConjunctiveFormula.of(lookups).addAll(requires.stream().filter(t -> !t.containsAttribute(Att.transition())).collect(Collectors.toList())),
+                        automatonLeftHandSide));
+    }
+
+    public boolean hasAutomatonConstraint() {
+        return automatonConstraints != null;
+    }
+
+    /**
+     * Returns the constraint checked when this rule matches in the rule automaton.
+     * @param withTransitions whether the requires clauses tagged with the transition attribute are included
+     */
+    public AutomatonConstraint automatonConstraint(boolean withTransitions) {
+        AutomatonConstraints constraints = automatonConstraints;
+        return withTransitions ? constraints.withTransitions : constraints.withoutTransitions;
+    }
+
     @Override
     public boolean equals(Object object) {
         if (this == object) {
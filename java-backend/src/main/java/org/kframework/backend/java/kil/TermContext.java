@@ -23,6 +23,11 @@ public class TermContext extends JavaSymbolicObject {
 
     private final GlobalContext global;
 
+    /**
+     * The value of the fresh counter when this context was taken as a {@link #speculativeFork}, or null.
+     */
+    private final BigInteger forkedAt;
+
     private Set<Variable> initialVariables;
 
     /**
@@ -49,8 +54,13 @@ public class TermContext extends JavaSymbolicObject {
     private KOREtoBackendKIL converter;
 
     private TermContext(GlobalContext global, FreshCounter counter) {
+        this(global, counter, null);
+    }
+
+    private TermContext(GlobalContext global, FreshCounter counter, BigInteger forkedAt) {
         this.global = global;
         this.counter = counter;
+        this.forkedAt = forkedAt;
         this.initialVariables = Sets.newHashSet();
     }
 
@@ -74,6 +84,43 @@ public class TermContext extends JavaSymbolicObject {
         return counter != null ? new TermContext(global, new FreshCounter(counter.value)) : this;
     }
 
+    /**
+     * Forks a {@link TermContext} for computing a step speculatively, possibly in another thread: the fork shares
+     * everything with this context but its fresh counter and its top constraint. The step is taken over by
+     * {@link #join} once it is known which steps this context computes before it.
+     */
+    public TermContext speculativeFork() {
+        TermContext fork = counter != null
+                ? new TermContext(global, new FreshCounter(counter.value), counter.value)
+                : new TermContext(global, null);
+        fork.initialVariables = initialVariables;
+        fork.topTerm = topTerm;
+        fork.topConstraint = topConstraint;
+        fork.converter = converter;
+        return fork;
+    }
+
+    /**
+     * Takes over a step computed in the given {@link #speculativeFork} of this context, as if it had been computed
+     * in this context: the fresh counter of this context is advanced past the fresh constants generated by the fork.
+     * Returns false, leaving this context unchanged, if both this context and the fork generated fresh constants
+     * since the fork was taken, as the constants of the fork then clash with those of this context, and the step
+     * has to be computed again.
+     */
+    public boolean join(TermContext fork) {
+        if (fork == this) {
+            return true;
+        }
+        if (fork.counter != null && !fork.counter.value.equals(fork.forkedAt)) {
+            if (!counter.value.equals(fork.forkedAt)) {
+                return false;
+            }
+            counter.value = fork.counter.value;
+        }
+        topConstraint = fork.topConstraint;
+        return true;
+    }
+
     public BigInteger freshConstant() {
         if (counter == null) {
             throw KEMException.criticalError("No fresh counter available in this TermContext.");
@@ -0,0 +1,195 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.backend.java.rewritemachine;
+
+import org.kframework.backend.java.kil.BuiltinList;
+import org.kframework.backend.java.kil.BuiltinMap;
+import org.kframework.backend.java.kil.BuiltinSet;
+import org.kframework.backend.java.kil.InjectedKLabel;
+import org.kframework.backend.java.kil.KItem;
+import org.kframework.backend.java.kil.KItemProjection;
+import org.kframework.backend.java.kil.KLabelInjection;
+import org.kframework.backend.java.kil.KList;
+import org.kframework.backend.java.kil.KSequence;
+import org.kframework.backend.java.kil.Term;
+import org.kframework.backend.java.kil.TermContext;
+import org.kframework.backend.java.kil.Variable;
+import org.kframework.backend.java.rewritemachine.RHSInstruction.Constructor;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An instruction schedule generated by {@link GenerateRHSInstructions}, compiled into a tree of closures
+ * which build the term directly from the bindings of the variables.
+ * <p>
+ * Compilation runs the stack machine of
+ * {@link org.kframework.backend.java.util.RewriteEngineUtils#construct} once, on closures instead of terms,
+ * so that building the term neither dispatches on the instructions nor maintains a stack. Each closure has
+ * a fixed shape, which lets the JIT compiler inline the construction of a frequently applied rule.
+ * The operands of an instruction are built in the order of the schedule, so that functions with side effects
+ * (such as fresh constant generation) are evaluated in the same order as by the stack machine.
+ */
+public final class CompiledRHS {
+
+    @FunctionalInterface
+    private interface Node {
+        Term build(Map<Variable, Term> solution, TermContext context);
+    }
+
+    private final Node root;
+
+    private CompiledRHS(Node root) {
+        this.root = root;
+    }
+
+    public Term construct(Map<Variable, Term> solution, TermContext context) {
+        return root.build(solution, context);
+    }
+
+    public static CompiledRHS compile(List<RHSInstruction> rhsInstructions) {
+        Deque<Node> stack = new ArrayDeque<>();
+        for (RHSInstruction instruction : rhsInstructions) {
+            switch (instruction.type()) {
+            case PUSH:
+                Term term = instruction.term();
+                stack.push((solution, context) -> term);
+                break;
+            case SUBST:
+                Variable variable = (Variable) instruction.term();
+                stack.push((solution, context) -> {
+                    Term binding = solution.get(variable);
+                    return binding != null ? binding : variable;
+                });
+                break;
+            case CONSTRUCT:
+                stack.push(compile(instruction.constructor(), stack));
+                break;
+            case EVAL:
+                Node kItem = stack.pop();
+                stack.push((solution, context) -> ((KItem) kItem.build(solution, context)).resolveFunctionAndAnywhere(context));
+                break;
+            case PROJECT:
+                Node projection = stack.pop();
+                stack.push((solution, context) -> ((KItemProjection) projection.build(solution, context)).evaluateProjection());
+                break;
+            default:
+                throw new AssertionError("unreachable");
+            }
+        }
+        assert stack.size() == 1;
+        return new CompiledRHS(stack.pop());
+    }
+
+    private static Node compile(Constructor constructor, Deque<Node> stack) {
+        switch (constructor.type()) {
+        case BUILTIN_LIST: {
+            Node[] elements = pop(stack, constructor.size1());
+            return (solution, context) -> {
+                Term[] terms = build(elements, solution, context);
+                BuiltinList.Builder builder = BuiltinList.builder(constructor.assocListSort, constructor.assocListOperator, constructor.assocListUnit, context.global());
+                for (Term element : terms) {
+                    builder.add(element);
+                }
+                return builder.build();
+            };
+        }
+        case BUILTIN_MAP: {
+            Node[] operands = pop(stack, 2 * constructor.size1() + constructor.size2());
+            int size = constructor.size1();
+            return (solution, context) -> {
+                Term[] terms = build(operands, solution, context);
+                BuiltinMap.Builder builder = BuiltinMap.builder(context.global());
+                for (int i = 0; i < size; i++) {
+                    builder.put(terms[2 * i], terms[2 * i + 1]);
+                }
+                for (int i = 2 * size; i < terms.length; i++) {
+                    builder.concatenate(terms[i]);
+                }
+                return builder.build();
+            };
+        }
+        case BUILTIN_SET: {
+            Node[] operands = pop(stack, constructor.size1() + constructor.size2());
+            int size = constructor.size1();
+            return (solution, context) -> {
+                Term[] terms = build(operands, solution, context);
+                BuiltinSet.Builder builder = BuiltinSet.builder(context.global());
+                for (int i = 0; i < size; i++) {
+                    builder.add(terms[i]);
+                }
+                for (int i = size; i < terms.length; i++) {
+                    builder.concatenate(terms[i]);
+                }
+                return builder.build();
+            };
+        }
+        case KITEM: {
+            Node kLabel = stack.pop();
+            Node kList = stack.pop();
+            return (solution, context) -> {
+                Term kListTerm = kList.build(solution, context);
+                Term kLabelTerm = kLabel.build(solution, context);
+                return KItem.of(kLabelTerm, kListTerm, context.global(), constructor.getSource(), constructor.getLocation());
+            };
+        }
+        case KITEM_PROJECTION: {
+            Node term = stack.pop();
+            return (solution, context) -> new KItemProjection(constructor.kind(), term.build(solution, context));
+        }
+        case KLABEL_INJECTION: {
+            Node term = stack.pop();
+            return (solution, context) -> new KLabelInjection(term.build(solution, context));
+        }
+        case INJECTED_KLABEL: {
+            Node term = stack.pop();
+            return (solution, context) -> new InjectedKLabel(term.build(solution, context));
+        }
+        case KLIST: {
+            Node[] items = pop(stack, constructor.size1());
+            return (solution, context) -> {
+                KList.Builder builder = KList.builder();
+                for (Term item : build(items, solution, context)) {
+                    builder.concatenate(item);
+                }
+                return builder.build();
+            };
+        }
+        case KSEQUENCE: {
+            Node[] items = pop(stack, constructor.size1());
+            return (solution, context) -> {
+                KSequence.Builder builder = KSequence.builder();
+                for (Term item : build(items, solution, context)) {
+                    builder.concatenate(item);
+                }
+                return builder.build();
+            };
+        }
+        default:
+            throw new AssertionError("unreachable");
+        }
+    }
+
+    /**
+     * Pops the given number of operands, in the order in which the stack machine pops them.
+     */
+    private static Node[] pop(Deque<Node> stack, int size) {
+        Node[] operands = new Node[size];
+        for (int i = 0; i < size; i++) {
+            operands[i] = stack.pop();
+        }
+        return operands;
+    }
+
+    /**
+     * Builds the operands in the order in which the stack machine pushes them.
+     */
+    private static Term[] build(Node[] operands, Map<Variable, Term> solution, TermContext context) {
+        Term[] terms = new Term[operands.length];
+        for (int i = operands.length - 1; i >= 0; i--) {
+            terms[i] = operands[i].build(solution, context);
+        }
+        return terms;
+    }
+}
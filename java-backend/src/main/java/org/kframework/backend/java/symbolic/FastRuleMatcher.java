@@ -21,6 +21,7 @@ import org.kframework.backend.java.kil.Term;
 import org.kframework.backend.java.kil.TermContext;
 import org.kframework.backend.java.kil.Token;
 import org.kframework.backend.java.kil.Variable;
+import org.kframework.backend.java.util.Profiler;
 import org.kframework.builtin.KLabels;
 import org.kframework.frontend.KApply;
 import org.kframework.utils.BitSet;
@@ -105,7 +106,13 @@ public class FastRuleMatcher {
         ruleMask.stream().forEach(i -> constraints[i] = ConjunctiveFormula.of(context.global()));
         empty = BitSet.apply(ruleCount);
 
-        BitSet theMatchingRules = match(subject.term(), pattern, ruleMask, List());
+        global.profiler.start(Profiler.Category.MATCH, "automaton");
+        BitSet theMatchingRules;
+        try {
+            theMatchingRules = match(subject.term(), pattern, ruleMask, List());
+        } finally {
+            global.profiler.stop();
+        }
 
         List<RuleMatchResult> structuralResults = new ArrayList<>();
         List<RuleMatchResult> transitionResults = new ArrayList<>();
@@ -116,23 +123,27 @@ public class FastRuleMatcher {
                 continue;
             }
 
+            if (!rule.hasAutomatonConstraint()) {
+                // the rule table was not built along with this automaton; threads racing here compute the same constraints
+                rule.setAutomatonLeftHandSide(getLeftHandSide(pattern, i));
+            }
             // TODO(YilongL): remove TermContext from the signature once
             // ConstrainedTerm doesn't hold a TermContext anymore
             /* TODO(AndreiS): remove this hack for super strictness after strategies work */
-            ConjunctiveFormula patternConstraint = ConjunctiveFormula.of(rule.lookups());
-            if (!computeOne && rule.containsAttribute(Att.cool()) && transitions.stream().anyMatch(rule::containsAttribute)) {
-                patternConstraint = patternConstraint.addAll(rule.requires().stream().filter(t -> !t.containsAttribute(Att.transition())).collect(Collectors.toList()));
-            } else {
-                patternConstraint = patternConstraint.addAll(rule.requires());
-            }
-            List<Triple<ConjunctiveFormula, Boolean, Map<scala.collection.immutable.List<Pair<Integer, Integer>>, Term>>> ruleResults = ConstrainedTerm.evaluateConstraints(
-                    constraints[i],
-                    subject.constraint(),
-                    patternConstraint,
-                    Sets.union(getLeftHandSide(pattern, i).variableSet(), patternConstraint.variableSet()).stream()
-                            .filter(v -> !v.name().equals(KOREtoBackendKIL.THE_VARIABLE))
-                            .collect(Collectors.toSet()),
-                    context);
+            Rule.AutomatonConstraint automatonConstraint = rule.automatonConstraint(
+                    !(!computeOne && rule.containsAttribute(Att.cool()) && transitions.stream().anyMatch(rule::containsAttribute)));
+            List<Triple<ConjunctiveFormula, Boolean, Map<scala.collection.immutable.List<Pair<Integer, Integer>>, Term>>> ruleResults;
+            global.profiler.start(Profiler.Category.SIDE_CONDITION, rule);
+            try {
+                ruleResults = ConstrainedTerm.evaluateConstraints(
+                        constraints[i],
+                        subject.constraint(),
+                        automatonConstraint.constraint,
+                        automatonConstraint.variables,
+                        context);
+            } finally {
+                global.profiler.stop();
+            }
             for (Triple<ConjunctiveFormula, Boolean, Map<scala.collection.immutable.List<Pair<Integer, Integer>>, Term>> triple : ruleResults) {
                 RuleMatchResult result = new RuleMatchResult(triple.getLeft(), triple.getMiddle(), triple.getRight(), i);
                 if (transitions.stream().anyMatch(rule::containsAttribute)) {
@@ -527,7 +538,10 @@ public class FastRuleMatcher {
         return ruleMask;
     }
 
-    private Term getLeftHandSide(Term pattern, int i) {
+    /**
+     * Returns the left-hand side of the rule with the given index in the (possibly merged) pattern.
+     */
+    public static Term getLeftHandSide(Term pattern, int i) {
         return (Term) pattern.accept(new CopyOnWriteTransformer(null) {
             @Override
             public Term transform(RuleAutomatonDisjunction ruleAutomatonDisjunction) {
@@ -145,6 +145,9 @@ public class InitializeRewriter implements Function<Pair<Module, org.kframework.
             Term backendKil = MacroExpander.expandAndEvaluate(termContext, kem, converter.convert(k));
             this.rewriter = new SymbolicRewriter(rewritingContext, transitions, new KRunState.Counter(), converter);
             JavaKRunState result = (JavaKRunState) rewriter.rewrite(new ConstrainedTerm(backendKil, termContext), depth.orElse(-1));
+            rewritingContext.profiler.write(rewritingContext.krunOptions);
+            rewritingContext.coverage.flush();
+            rewritingContext.constraintOps.flush();
             return new RewriterResult(result.getStepsTaken(), result.getJavaKilTerm());
         }
 
@@ -162,7 +165,11 @@ public class InitializeRewriter implements Function<Pair<Module, org.kframework.
             Term javaTerm = MacroExpander.expandAndEvaluate(termContext, kem, converter.convert(initialConfiguration));
             org.kframework.backend.java.kil.Rule javaPattern = converter.convert(Optional.empty(), pattern);
             this.rewriter = new SymbolicRewriter(rewritingContext, transitions, new KRunState.Counter(), converter);
-            return rewriter.search(javaTerm, javaPattern, bound.orElse(NEGATIVE_VALUE), depth.orElse(NEGATIVE_VALUE), searchType, termContext, resultsAsSubstitution);
+            K result = rewriter.search(javaTerm, javaPattern, bound.orElse(NEGATIVE_VALUE), depth.orElse(NEGATIVE_VALUE), searchType, termContext, resultsAsSubstitution);
+            rewritingContext.profiler.write(rewritingContext.krunOptions);
+            rewritingContext.coverage.flush();
+            rewritingContext.constraintOps.flush();
+            return result;
         }
 
 
@@ -212,6 +219,13 @@ public class InitializeRewriter implements Function<Pair<Module, org.kframework.
                     .flatMap(List::stream)
                     .collect(Collectors.toList());
 
+            if (rewritingContext.krunOptions.experimental.statistics) {
+                rewritingContext.constraintOps.printStatistics();
+            }
+            rewritingContext.profiler.write(rewritingContext.krunOptions);
+            rewritingContext.coverage.flush();
+            rewritingContext.constraintOps.flush();
+
             return proofResults.stream()
                     .map(ConstrainedTerm::term)
                     .map(t -> (KItem) t)
@@ -221,18 +235,44 @@ public class InitializeRewriter implements Function<Pair<Module, org.kframework.
     }
 
 
+    /**
+     * Initializes the backend {@link Definition} of a module, and memoizes it for later calls with the same module.
+     * <p>
+     * The rules and terms of a definition refer to the initializing {@link GlobalContext} they were built with, which
+     * holds the options, exception manager and hooks of the call that built them. A memoized definition is kept with
+     * that context, and the context is rebound to the given one whenever the definition is reused.
+     */
     public static class InitializeDefinition {
 
-        private final Map<Module, Definition> cache = new LinkedHashMap<Module, Definition>() {
+        private final Map<Module, GlobalContext> cache = new LinkedHashMap<Module, GlobalContext>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Module, GlobalContext> eldest) {
+                return this.size() > 20;
+            }
+        };
+
+        private final Map<org.kframework.kore.Module, GlobalContext> miniKoreCache = new LinkedHashMap<org.kframework.kore.Module, GlobalContext>() {
             @Override
-            protected boolean removeEldestEntry(Map.Entry<Module, Definition> eldest) {
+            protected boolean removeEldestEntry(Map.Entry<org.kframework.kore.Module, GlobalContext> eldest) {
                 return this.size() > 20;
             }
         };
 
+        /**
+         * Returns the memoized definition built with the given initializing context, rebinding the context to the
+         * given one.
+         */
+        private static Definition reuse(GlobalContext cached, KExceptionManager kem, GlobalContext global) {
+            cached.rebind(global);
+            Definition definition = cached.getDefinition();
+            definition.setKem(kem);
+            global.setDefinition(definition);
+            return definition;
+        }
+
         public Definition invoke(Module module, KExceptionManager kem, GlobalContext global) {
             if (cache.containsKey(module)) {
-                return cache.get(module);
+                return reuse(cache.get(module), kem, global);
             }
             Definition definition = new Definition(module, kem);
 
@@ -242,12 +282,15 @@ public class InitializeRewriter implements Function<Pair<Module, org.kframework.
                     .map(l -> KLabelConstant.of(l.name(), definition))
                     .forEach(definition::addKLabel);
             definition.addKoreRules(module, global);
-            cache.put(module, definition);
+            cache.put(module, global);
             return definition;
         }
 
 
         public Definition invoke(KExceptionManager kem, GlobalContext global, org.kframework.kore.Module miniKoreModule, org.kframework.kore.Definition miniKoreDefinition) {
+            if (miniKoreCache.containsKey(miniKoreModule)) {
+                return reuse(miniKoreCache.get(miniKoreModule), kem, global);
+            }
             MiniKoreUtils.ModuleUtils moduleUtils = new MiniKoreUtils.ModuleUtils(miniKoreModule, miniKoreDefinition);
             Definition definition = new Definition(moduleUtils, kem);
 
@@ -262,6 +305,7 @@ public class InitializeRewriter implements Function<Pair<Module, org.kframework.
 
             //TODO: Change add KoreRules and the converter to use MiniKore
             definition.addKoreRules(koreModule, global);
+            miniKoreCache.put(miniKoreModule, global);
             return definition;
         }
 
@@ -0,0 +1,222 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.backend.java.symbolic;
+
+import org.kframework.backend.java.kil.BuiltinList;
+import org.kframework.backend.java.kil.KItem;
+import org.kframework.backend.java.kil.KLabelConstant;
+import org.kframework.backend.java.kil.KList;
+import org.kframework.backend.java.kil.Rule;
+import org.kframework.backend.java.kil.Sort;
+import org.kframework.backend.java.kil.Term;
+import org.kframework.backend.java.kil.Token;
+import org.kframework.utils.BitSet;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A first-level index of the rules of the rule automaton, keyed by the head of the first item in the
+ * {@code <k>} cell. It gives {@link FastRuleMatcher} the initial rule mask of a subject, so that matching
+ * never starts on the rules which require a different item on top of the {@code <k>} cell.
+ * <p>
+ * The head of an item is its {@link KLabelConstant} if it is a {@link KItem}, and its sort if it is a
+ * {@link Token}; an empty {@code <k>} cell has a head of its own. The rules whose {@code <k>} cell starts with
+ * an item with no head (a variable, for example) and the rules without a {@code <k>} cell apply to every subject.
+ * <p>
+ * The {@code <k>} cell is looked up along the path of cells at which all the rules mention it, so that a lookup
+ * does not traverse the subject. If the rules do not agree on a single path made of cells only (for example,
+ * because the {@code <k>} cell has a multiplicity), the index is disabled and every rule applies to every subject.
+ */
+public class RuleIndex {
+
+    private static final String K_CELL = "<k>";
+    private static final Object EMPTY = new Object();
+
+    private final int ruleCount;
+    private final BitSet allRules;
+    /**
+     * The rules which apply whatever the head of the subject is.
+     */
+    private final BitSet unindexedRules;
+    /**
+     * For each head, the rules indexed under it and the unindexed rules.
+     */
+    private final Map<Object, BitSet> rulesByHead = new HashMap<>();
+    /**
+     * The labels of the cells from the top of the configuration to the {@code <k>} cell, and the position of
+     * each of them in its parent; null if the index is disabled.
+     */
+    private final List<String> kCellLabels;
+    private final int[] kCellPath;
+
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder candidateRules = new LongAdder();
+
+    public RuleIndex(Map<Integer, Rule> ruleTable) {
+        ruleCount = ruleTable.size();
+        allRules = BitSet.apply(ruleCount);
+        allRules.makeOnes(ruleCount);
+        unindexedRules = BitSet.apply(ruleCount);
+
+        Map<Integer, List<KCellOccurrence>> occurrences = new HashMap<>();
+        ruleTable.forEach((index, rule) -> {
+            List<KCellOccurrence> ruleOccurrences = new ArrayList<>();
+            findKCells(rule.leftHandSide(), new ArrayList<>(), new ArrayList<>(), true, ruleOccurrences);
+            occurrences.put(index, ruleOccurrences);
+        });
+
+        KCellOccurrence common = null;
+        boolean enabled = true;
+        for (List<KCellOccurrence> ruleOccurrences : occurrences.values()) {
+            if (ruleOccurrences.size() > 1) {
+                enabled = false;
+            }
+            for (KCellOccurrence occurrence : ruleOccurrences) {
+                if (!occurrence.cellsOnly || common != null && !common.samePath(occurrence)) {
+                    enabled = false;
+                }
+                common = occurrence;
+            }
+        }
+        if (!enabled || common == null) {
+            kCellLabels = null;
+            kCellPath = null;
+            return;
+        }
+        kCellLabels = common.labels;
+        kCellPath = common.path.stream().mapToInt(Integer::intValue).toArray();
+
+        Map<Object, BitSet> indexedRules = new HashMap<>();
+        occurrences.forEach((index, ruleOccurrences) -> {
+            Object head = ruleOccurrences.isEmpty() ? null : head(ruleOccurrences.get(0).content);
+            if (head != null) {
+                indexedRules.computeIfAbsent(head, h -> BitSet.apply(ruleCount)).set(index);
+            } else {
+                unindexedRules.set(index);
+            }
+        });
+        indexedRules.forEach((head, rules) -> {
+            rules.or(unindexedRules);
+            rulesByHead.put(head, rules);
+        });
+    }
+
+    private static final class KCellOccurrence {
+        final List<String> labels;
+        final List<Integer> path;
+        /** Whether all the terms on the path are cells. */
+        final boolean cellsOnly;
+        final Term content;
+
+        KCellOccurrence(List<String> labels, List<Integer> path, boolean cellsOnly, Term content) {
+            this.labels = labels;
+            this.path = path;
+            this.cellsOnly = cellsOnly;
+            this.content = content;
+        }
+
+        boolean samePath(KCellOccurrence other) {
+            return labels.equals(other.labels) && path.equals(other.path);
+        }
+    }
+
+    private static void findKCells(Term term, List<String> labels, List<Integer> path, boolean cellsOnly, List<KCellOccurrence> occurrences) {
+        if (term instanceof KItem && ((KItem) term).kLabel() instanceof KLabelConstant && ((KItem) term).kList() instanceof KList) {
+            String label = ((KLabelConstant) ((KItem) term).kLabel()).label();
+            KList kList = (KList) ((KItem) term).kList();
+            List<String> childLabels = new ArrayList<>(labels);
+            childLabels.add(label);
+            if (label.equals(K_CELL)) {
+                occurrences.add(new KCellOccurrence(childLabels, path, cellsOnly && !kList.hasFrame() && kList.size() == 1, kList.get(0)));
+                return;
+            }
+            boolean childCellsOnly = cellsOnly && isCellLabel(label) && !kList.hasFrame();
+            for (int i = 0; i < kList.concreteSize(); i++) {
+                List<Integer> childPath = new ArrayList<>(path);
+                childPath.add(i);
+                findKCells(kList.get(i), childLabels, childPath, childCellsOnly, occurrences);
+            }
+        } else if (!term.getCellContentsByName(K_CELL).isEmpty()) {
+            // a <k> cell below a term which is not a cell, such as a collection of cells
+            occurrences.add(new KCellOccurrence(labels, path, false, null));
+        }
+    }
+
+    private static boolean isCellLabel(String label) {
+        return label.startsWith("<") && label.endsWith(">");
+    }
+
+    /**
+     * Returns a fresh mask of the rules which may apply to the given subject.
+     */
+    public BitSet ruleMask(Term subject) {
+        lookups.increment();
+        Object head = kCellPath != null ? head(kCellContent(subject)) : null;
+        if (head == null) {
+            return allRules.clone();
+        }
+        hits.increment();
+        BitSet rules = rulesByHead.getOrDefault(head, unindexedRules).clone();
+        candidateRules.add(rules.cardinality());
+        return rules;
+    }
+
+    /**
+     * Returns the content of the {@code <k>} cell of the subject along the indexed path, or null if the subject
+     * does not have a {@code <k>} cell there.
+     */
+    private Term kCellContent(Term subject) {
+        Term term = subject;
+        for (int i = 0; i <= kCellPath.length; i++) {
+            if (!(term instanceof KItem)
+                    || !(((KItem) term).kLabel() instanceof KLabelConstant)
+                    || !(((KItem) term).kList() instanceof KList)
+                    || !((KLabelConstant) ((KItem) term).kLabel()).label().equals(kCellLabels.get(i))) {
+                return null;
+            }
+            KList kList = (KList) ((KItem) term).kList();
+            int position = i < kCellPath.length ? kCellPath[i] : 0;
+            if (kList.hasFrame() || position >= kList.concreteSize()) {
+                return null;
+            }
+            term = kList.get(position);
+        }
+        return term;
+    }
+
+    /**
+     * Returns the head of the first item of the given content of a {@code <k>} cell, or null if it has no head.
+     */
+    private static Object head(Term content) {
+        if (content instanceof BuiltinList && ((BuiltinList) content).sort.equals(Sort.KSEQUENCE)) {
+            BuiltinList kSequence = (BuiltinList) content;
+            if (kSequence.size() == 0) {
+                return EMPTY;
+            } else if (!kSequence.isElement(0)) {
+                return null;
+            }
+            content = kSequence.get(0);
+        }
+        if (content instanceof KItem && ((KItem) content).kLabel() instanceof KLabelConstant) {
+            return ((KItem) content).kLabel();
+        } else if (content instanceof Token) {
+            return content.sort();
+        }
+        return null;
+    }
+
+    /**
+     * Returns a summary of the lookups in this index: how many subjects had a known head, and how many rules
+     * were left to match on average.
+     */
+    public String statistics() {
+        long lookupCount = lookups.sum();
+        long hitCount = hits.sum();
+        return String.format("[rule index: %d lookups, %d indexed, %.1f of %d rules per indexed lookup]",
+                lookupCount, hitCount, hitCount > 0 ? (double) candidateRules.sum() / hitCount : 0.0, ruleCount);
+    }
+}
@@ -3,7 +3,10 @@ package org.kframework.backend.java.symbolic;
 
 import org.kframework.backend.java.kil.Definition;
 import org.kframework.backend.java.kil.Variable;
+import org.kframework.backend.java.util.Profiler;
 import org.kframework.backend.java.util.Z3Wrapper;
+import org.kframework.utils.errorsystem.KExceptionManager;
+import org.kframework.utils.file.FileUtil;
 import org.kframework.utils.options.SMTOptions;
 import org.kframework.utils.options.SMTSolver;
 
@@ -15,13 +18,45 @@ public class SMTOperations {
 
     private final SMTOptions smtOptions;
     private final Z3Wrapper z3;
+    private final SMTQueryCache cache;
+    private final Profiler profiler;
+    private final KExceptionManager kem;
 
     public SMTOperations(
             Provider<Definition> definitionProvider,
             SMTOptions smtOptions,
-            Z3Wrapper z3) {
+            Z3Wrapper z3,
+            KExceptionManager kem,
+            FileUtil files,
+            Profiler profiler) {
         this.smtOptions = smtOptions;
         this.z3 = z3;
+        this.profiler = profiler;
+        this.kem = kem;
+        if (smtOptions.smtCacheSize <= 0) {
+            this.cache = null;
+        } else if (smtOptions.smtCacheFile) {
+            this.cache = SMTQueryCache.persistent(
+                    smtOptions.smtCacheSize, z3.SMT_PRELUDE, files.resolveKompiled("smt-cache.bin"), kem);
+        } else {
+            this.cache = new SMTQueryCache(smtOptions.smtCacheSize, z3.SMT_PRELUDE, null, kem);
+        }
+    }
+
+    /**
+     * Checks the query with Z3, unless the verdict of an alpha-equivalent query is already cached.
+     */
+    private boolean isUnsat(String query, int timeout) {
+        if (cache == null) {
+            return z3.isUnsat(query, timeout);
+        }
+        String key = cache.key(query, timeout);
+        Boolean result = cache.get(key);
+        if (result == null) {
+            result = z3.isUnsat(query, timeout);
+            cache.put(key, result, kem);
+        }
+        return result;
     }
 
     public boolean checkUnsat(ConjunctiveFormula constraint) {
@@ -34,14 +69,17 @@ public class SMTOperations {
         }
 
         boolean result = false;
+        profiler.start(Profiler.Category.SMT, "constraint");
         try {
             String query = KILtoSMTLib.translateConstraint(constraint);
-            result = z3.isUnsat(query, smtOptions.z3CnstrTimeout);
+            result = isUnsat(query, smtOptions.z3CnstrTimeout);
             if (result && RuleAuditing.isAuditBegun()) {
                 System.err.println("SMT query returned unsat: " + query);
             }
         } catch (UnsupportedOperationException e) {
             e.printStackTrace();
+        } finally {
+            profiler.stop();
         }
         return result;
     }
@@ -54,16 +92,40 @@ public class SMTOperations {
             ConjunctiveFormula right,
             Set<Variable> rightOnlyVariables) {
         if (smtOptions.smt == SMTSolver.Z3) {
+            profiler.start(Profiler.Category.SMT, "implication");
             try {
-                return z3.isUnsat(
+                return isUnsat(
                         KILtoSMTLib.translateImplication(left, right, rightOnlyVariables),
                         smtOptions.z3ImplTimeout);
             } catch (UnsupportedOperationException e) {
                 e.printStackTrace();
             } catch (SMTTranslationFailure e) {
                 e.printStackTrace();
+            } finally {
+                profiler.stop();
             }
         }
         return false;
     }
+
+    /**
+     * Ends the run: closes the file of the cache of verdicts, if any.
+     */
+    public void flush() {
+        if (cache != null) {
+            cache.flush(kem);
+        }
+    }
+
+    /**
+     * Prints the SMT solver statistics gathered so far.
+     */
+    public void printStatistics() {
+        if (smtOptions.smt == SMTSolver.Z3) {
+            z3.printStatistics();
+            if (cache != null) {
+                cache.printStatistics();
+            }
+        }
+    }
 }
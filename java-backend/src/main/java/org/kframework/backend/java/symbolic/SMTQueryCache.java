@@ -0,0 +1,495 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.backend.java.symbolic;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.commons.lang3.tuple.Triple;
+import org.kframework.utils.errorsystem.KExceptionManager;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Bounded, least-recently-used cache of SMT verdicts.
+ * <p>
+ * Queries are keyed on an alpha-normalized form of their SMT-LIB text, in which the constants declared
+ * by the query and the variables bound by quantifiers are renamed in order of first occurrence, so that
+ * the same constraint over freshly renamed variables hits the entry of its earlier occurrences.
+ * The normalized key is never sent to the solver.
+ * <p>
+ * Optionally, verdicts are also appended to a file which is read back when the cache is created, so that
+ * later runs against the same kompiled definition start with the verdicts of earlier runs. The file
+ * starts with the SMT prelude, and is discarded if the prelude changed. At the end of a run the file is
+ * closed, and rewritten with the entries of the cache if it holds others, so that it stays bounded by the
+ * size of the cache. All the contexts of a JVM share the cache of a file and size (see {@link #persistent}).
+ *
+ * @see org.kframework.utils.options.SMTOptions#smtCacheSize
+ */
+public class SMTQueryCache {
+
+    private static final Map<Triple<File, String, Integer>, SMTQueryCache> persistentCaches = new HashMap<>();
+
+    private final Map<String, Boolean> cache;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private final File file;
+    private final String prelude;
+    /**
+     * The stream appending to {@link #file}, opened on the first verdict of a run and closed when it ends.
+     */
+    private DataOutputStream spill;
+    /**
+     * The length of the prefix of {@link #file} made of the prelude and complete entries, or 0 if the file must be
+     * written afresh.
+     */
+    private long validLength;
+    /**
+     * The number of entries in the valid prefix of {@link #file}.
+     */
+    private int records;
+    /**
+     * Set when writing to {@link #file} failed, until the end of the run.
+     */
+    private boolean spillFailed;
+
+    /**
+     * Returns the cache of the given size whose entries are also stored in the given file.
+     */
+    public static synchronized SMTQueryCache persistent(int maxSize, String prelude, File file, KExceptionManager kem) {
+        return persistentCaches.computeIfAbsent(
+                Triple.of(file.getAbsoluteFile(), prelude, maxSize),
+                t -> new SMTQueryCache(maxSize, prelude, t.getLeft(), kem));
+    }
+
+    /**
+     * @param spillFile the file the entries are also stored in, or null
+     * @param kem the exception manager which problems reading the file are reported to
+     */
+    public SMTQueryCache(int maxSize, String prelude, File spillFile, KExceptionManager kem) {
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return this.size() > maxSize;
+            }
+        });
+        this.file = spillFile;
+        this.prelude = prelude;
+        if (spillFile != null && spillFile.exists()) {
+            load(kem);
+        }
+    }
+
+    /**
+     * Returns the normalized key of the given query checked with the given timeout.
+     */
+    public String key(String query, int timeout) {
+        return timeout + " " + normalize(query);
+    }
+
+    /**
+     * Returns the cached verdict of the query with the given key, or {@code null} if there is none.
+     */
+    public Boolean get(String key) {
+        Boolean result = cache.get(key);
+        if (result != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return result;
+    }
+
+    /**
+     * Caches the verdict of the query with the given key.
+     * @param kem the exception manager of the current run, which problems writing the file are reported to
+     */
+    public void put(String key, boolean unsat, KExceptionManager kem) {
+        cache.put(key, unsat);
+        if (file != null) {
+            synchronized (this) {
+                if (spillFailed) {
+                    return;
+                }
+                try {
+                    if (spill == null) {
+                        spill = openSpillFile();
+                    }
+                    long length = writeEntry(spill, key, unsat);
+                    spill.flush();
+                    validLength += length;
+                    records++;
+                } catch (IOException e) {
+                    kem.registerInternalWarning("Could not write the SMT query cache file " + file + "; disabling it for this run.", e);
+                    spillFailed = true;
+                    closeSpillFile();
+                    validLength = 0;
+                    records = 0;
+                }
+            }
+        }
+    }
+
+    /**
+     * Ends the run: closes the file, and rewrites it with the entries of the cache if it holds more or fewer
+     * entries, so that it does not grow beyond the size of the cache across runs.
+     * @param kem the exception manager of the current run, which problems writing the file are reported to
+     */
+    public synchronized void flush(KExceptionManager kem) {
+        if (file == null) {
+            return;
+        }
+        closeSpillFile();
+        spillFailed = false;
+        List<Map.Entry<String, Boolean>> entries;
+        synchronized (cache) {
+            entries = new ArrayList<>(cache.entrySet().size());
+            for (Map.Entry<String, Boolean> entry : cache.entrySet()) {
+                entries.add(Pair.of(entry.getKey(), entry.getValue()));
+            }
+        }
+        if (records == entries.size() && (validLength > 0 || entries.isEmpty())) {
+            return;
+        }
+        File compacted = new File(file.getPath() + ".tmp");
+        try {
+            long length = 0;
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(compacted)))) {
+                length += writeString(out, prelude);
+                for (Map.Entry<String, Boolean> entry : entries) {
+                    length += writeEntry(out, entry.getKey(), entry.getValue());
+                }
+            }
+            Files.move(compacted.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            validLength = length;
+            records = entries.size();
+        } catch (IOException e) {
+            kem.registerInternalWarning("Could not compact the SMT query cache file " + file + ".", e);
+            compacted.delete();
+            validLength = 0;
+            records = 0;
+        }
+    }
+
+    public void printStatistics() {
+        long hits = this.hits.sum();
+        long total = hits + misses.sum();
+        System.err.printf("SMT query cache: %d hits, %d misses (%.1f%% hit rate), %d entries%n",
+                hits, total - hits, total == 0 ? 0.0 : 100.0 * hits / total, cache.size());
+    }
+
+    /**
+     * Reads the entries of the file into the cache, and records the length of its valid prefix. Reading stops at
+     * an entry truncated by an interrupted run; a file with another prelude or which cannot be decoded is discarded.
+     */
+    private void load(KExceptionManager kem) {
+        long fileLength = file.length();
+        Map<String, Boolean> entries = new LinkedHashMap<>();
+        long position = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            byte[] filePrelude = readBytes(in, fileLength);
+            if (filePrelude == null || !new String(filePrelude, StandardCharsets.UTF_8).equals(prelude)) {
+                return;
+            }
+            position = 4 + filePrelude.length;
+            while (position < fileLength) {
+                byte[] key = readBytes(in, fileLength - position);
+                if (key == null || fileLength - position - 4 - key.length < 1) {
+                    break;
+                }
+                int verdict = in.readUnsignedByte();
+                if (verdict > 1) {
+                    throw new IOException("Invalid verdict " + verdict + " at offset " + (position + 4 + key.length) + ".");
+                }
+                entries.put(new String(key, StandardCharsets.UTF_8), verdict == 1);
+                position += 4 + key.length + 1;
+            }
+        } catch (IOException | RuntimeException e) {
+            kem.registerInternalWarning("Could not read the SMT query cache file " + file + "; discarding it.", e);
+            file.delete();
+            return;
+        }
+        cache.putAll(entries);
+        validLength = position;
+        records = entries.size();
+    }
+
+    /**
+     * Opens the file for appending after its valid prefix, dropping any entry truncated by an interrupted run, or
+     * writes it afresh with the prelude.
+     */
+    private DataOutputStream openSpillFile() throws IOException {
+        if (validLength > 0) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                if (raf.length() != validLength) {
+                    raf.setLength(validLength);
+                }
+            }
+            return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+        }
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, false)));
+        validLength = writeString(out, prelude);
+        records = 0;
+        return out;
+    }
+
+    private void closeSpillFile() {
+        if (spill != null) {
+            try {
+                spill.close();
+            } catch (IOException e) {
+                // the entries written so far were flushed; a partial one is dropped when the file is opened again
+            }
+            spill = null;
+        }
+    }
+
+    /**
+     * Writes an entry and returns the number of bytes written.
+     */
+    private static long writeEntry(DataOutputStream out, String key, boolean unsat) throws IOException {
+        long length = writeString(out, key);
+        out.writeBoolean(unsat);
+        return length + 1;
+    }
+
+    /**
+     * Writes a length-prefixed string and returns the number of bytes written.
+     */
+    private static long writeString(DataOutputStream out, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        return 4 + bytes.length;
+    }
+
+    /**
+     * Reads a length-prefixed byte string, of which at most the given number of bytes remain in the file, or
+     * returns null if it is truncated.
+     */
+    private static byte[] readBytes(DataInputStream in, long remaining) throws IOException {
+        if (remaining < 4) {
+            return null;
+        }
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Invalid string length " + length + ".");
+        }
+        if (length > remaining - 4) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    /**
+     * Returns the alpha-normalized form of the given SMT-LIB script. Declarations are sorted after renaming,
+     * so that their (hash-set dependent) order in the query does not matter either.
+     */
+    static String normalize(String query) {
+        List<Object> commands = parse(query);
+
+        Set<String> renamable = new TreeSet<>();
+        List<Object> declarations = new ArrayList<>();
+        List<Object> assertions = new ArrayList<>();
+        for (Object command : commands) {
+            if (isConstantDeclaration(command)) {
+                renamable.add((String) ((List<?>) command).get(1));
+                declarations.add(command);
+            } else if (head(command).equals("declare-fun") || head(command).equals("declare-sort")) {
+                declarations.add(command);
+            } else {
+                collectBoundVariables(command, renamable);
+                assertions.add(command);
+            }
+        }
+
+        Map<String, String> renaming = new HashMap<>();
+        for (Object assertion : assertions) {
+            collectRenaming(assertion, renamable, renaming);
+        }
+        for (String name : renamable) {
+            renaming.putIfAbsent(name, "#" + renaming.size());
+        }
+
+        TreeSet<String> sortedDeclarations = new TreeSet<>();
+        for (Object declaration : declarations) {
+            StringBuilder sb = new StringBuilder();
+            print(declaration, renaming, sb);
+            sortedDeclarations.add(sb.toString());
+        }
+        StringBuilder sb = new StringBuilder();
+        for (String declaration : sortedDeclarations) {
+            sb.append(declaration).append(' ');
+        }
+        for (Object assertion : assertions) {
+            print(assertion, renaming, sb);
+            sb.append(' ');
+        }
+        return sb.toString();
+    }
+
+    private static Object head(Object command) {
+        return command instanceof List && !((List<?>) command).isEmpty() ? ((List<?>) command).get(0) : "";
+    }
+
+    private static boolean isConstantDeclaration(Object command) {
+        if (!(command instanceof List)) {
+            return false;
+        }
+        List<?> list = (List<?>) command;
+        return list.size() == 4 && list.get(0).equals("declare-fun") && list.get(1) instanceof String
+                && list.get(2) instanceof List && ((List<?>) list.get(2)).isEmpty();
+    }
+
+    private static void collectBoundVariables(Object term, Set<String> bound) {
+        if (!(term instanceof List)) {
+            return;
+        }
+        List<?> list = (List<?>) term;
+        if (list.size() == 3 && (list.get(0).equals("exists") || list.get(0).equals("forall"))
+                && list.get(1) instanceof List) {
+            for (Object binder : (List<?>) list.get(1)) {
+                if (binder instanceof List && !((List<?>) binder).isEmpty()
+                        && ((List<?>) binder).get(0) instanceof String) {
+                    bound.add((String) ((List<?>) binder).get(0));
+                }
+            }
+        }
+        for (Object child : list) {
+            collectBoundVariables(child, bound);
+        }
+    }
+
+    private static void collectRenaming(Object term, Set<String> renamable, Map<String, String> renaming) {
+        if (term instanceof List) {
+            for (Object child : (List<?>) term) {
+                collectRenaming(child, renamable, renaming);
+            }
+        } else if (renamable.contains(term) && !renaming.containsKey(term)) {
+            renaming.put((String) term, "#" + renaming.size());
+        }
+    }
+
+    private static void print(Object term, Map<String, String> renaming, StringBuilder sb) {
+        if (term instanceof List) {
+            sb.append('(');
+            boolean first = true;
+            for (Object child : (List<?>) term) {
+                if (!first) {
+                    sb.append(' ');
+                }
+                first = false;
+                print(child, renaming, sb);
+            }
+            sb.append(')');
+        } else {
+            sb.append(renaming.getOrDefault(term, (String) term));
+        }
+    }
+
+    private static final Pattern SIMPLE_SYMBOL = Pattern.compile("[a-zA-Z~!@$%^&*_\\-+=<>.?/][0-9a-zA-Z~!@$%^&*_\\-+=<>.?/]*");
+    private static final Set<String> RESERVED_WORDS = new HashSet<>(Arrays.asList(
+            "_", "!", "as", "let", "exists", "forall", "match", "par", "NUMERAL", "DECIMAL", "STRING"));
+
+    /**
+     * Returns the quoted symbol {@code |s|} as {@code s} if {@code s} is a simple symbol, as both denote the
+     * same symbol.
+     */
+    private static String unquote(String symbol) {
+        String content = symbol.length() >= 2 && symbol.endsWith("|") ? symbol.substring(1, symbol.length() - 1) : null;
+        if (content != null && SIMPLE_SYMBOL.matcher(content).matches() && !RESERVED_WORDS.contains(content)
+                && !content.startsWith("declare-") && !content.equals("assert")) {
+            return content;
+        }
+        return symbol;
+    }
+
+    /**
+     * Parses an SMT-LIB script into nested lists of atoms, dropping comments and whitespace.
+     * Unbalanced parentheses are tolerated, as the result is only used as a cache key.
+     */
+    private static List<Object> parse(String query) {
+        List<List<Object>> stack = new ArrayList<>();
+        List<Object> current = new ArrayList<>();
+        int i = 0;
+        int length = query.length();
+        while (i < length) {
+            char c = query.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == ';') {
+                while (i < length && query.charAt(i) != '\n') {
+                    i++;
+                }
+            } else if (c == '(') {
+                stack.add(current);
+                current = new ArrayList<>();
+                i++;
+            } else if (c == ')') {
+                if (!stack.isEmpty()) {
+                    List<Object> parent = stack.remove(stack.size() - 1);
+                    parent.add(current);
+                    current = parent;
+                }
+                i++;
+            } else {
+                int start = i;
+                if (c == '|') {
+                    i = query.indexOf('|', i + 1);
+                    i = i < 0 ? length : i + 1;
+                    current.add(unquote(query.substring(start, i)));
+                    continue;
+                } else if (c == '"') {
+                    i++;
+                    while (i < length) {
+                        char d = query.charAt(i++);
+                        if (d == '\\' && i < length) {
+                            i++;
+                        } else if (d == '"') {
+                            if (i < length && query.charAt(i) == '"') {
+                                i++;
+                            } else {
+                                break;
+                            }
+                        }
+                    }
+                } else {
+                    while (i < length && !Character.isWhitespace(query.charAt(i))
+                            && query.charAt(i) != '(' && query.charAt(i) != ')' && query.charAt(i) != ';') {
+                        i++;
+                    }
+                }
+                current.add(query.substring(start, i));
+            }
+        }
+        while (!stack.isEmpty()) {
+            List<Object> parent = stack.remove(stack.size() - 1);
+            parent.add(current);
+            current = parent;
+        }
+        return current;
+    }
+}
@@ -0,0 +1,164 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.backend.java.symbolic;
+
+import org.kframework.backend.java.builtins.IntToken;
+import org.kframework.backend.java.kil.Collection;
+import org.kframework.backend.java.kil.ConstrainedTerm;
+import org.kframework.backend.java.kil.Term;
+import org.kframework.krun.KRunOptions;
+import org.kframework.utils.errorsystem.KEMException;
+
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.PriorityQueue;
+
+/**
+ * The states of a search which have been discovered but not yet expanded. The order in which
+ * states are handed out determines the search strategy.
+ *
+ * @see KRunOptions#searchStrategy
+ */
+abstract class SearchFrontier {
+
+    static final class Entry {
+        final ConstrainedTerm term;
+        /** The number of transitions from the initial state to this state. */
+        final int depth;
+        /** Whether this state was produced by a heating transition. */
+        final boolean superheated;
+
+        private Entry(ConstrainedTerm term, int depth, boolean superheated) {
+            this.term = term;
+            this.depth = depth;
+            this.superheated = superheated;
+        }
+    }
+
+    abstract void add(ConstrainedTerm term, int depth, boolean superheated);
+
+    /**
+     * Removes and returns the next state to expand.
+     */
+    abstract Entry poll();
+
+    abstract boolean isEmpty();
+
+    /**
+     * Returns an empty frontier for the given strategy; iterative deepening expands states depth-first.
+     */
+    static SearchFrontier of(KRunOptions options) {
+        switch (options.searchStrategy) {
+        case BFS:
+            return new Queue();
+        case DFS:
+        case ITERATIVE_DEEPENING:
+            return new Stack();
+        case BEST_FIRST:
+            if (options.searchHeuristic == null) {
+                throw KEMException.criticalError("--search-strategy best-first requires --search-heuristic.");
+            }
+            return new BestFirst(options.searchHeuristic);
+        default:
+            throw new AssertionError("unexpected search strategy: " + options.searchStrategy);
+        }
+    }
+
+    private static final class Queue extends SearchFrontier {
+        private final Deque<Entry> entries = new ArrayDeque<>();
+
+        @Override
+        void add(ConstrainedTerm term, int depth, boolean superheated) {
+            entries.addLast(new Entry(term, depth, superheated));
+        }
+
+        @Override
+        Entry poll() {
+            return entries.pollFirst();
+        }
+
+        @Override
+        boolean isEmpty() {
+            return entries.isEmpty();
+        }
+    }
+
+    private static final class Stack extends SearchFrontier {
+        private final Deque<Entry> entries = new ArrayDeque<>();
+
+        @Override
+        void add(ConstrainedTerm term, int depth, boolean superheated) {
+            entries.addFirst(new Entry(term, depth, superheated));
+        }
+
+        @Override
+        Entry poll() {
+            return entries.pollFirst();
+        }
+
+        @Override
+        boolean isEmpty() {
+            return entries.isEmpty();
+        }
+    }
+
+    /**
+     * Expands first the state whose heuristic cell has the smallest rank: the value of an integer,
+     * or the number of elements of a collection. States of equal rank are expanded in the order
+     * in which they were discovered.
+     */
+    private static final class BestFirst extends SearchFrontier {
+
+        private static final class RankedEntry {
+            final Entry entry;
+            final BigInteger rank;
+            final long sequenceNumber;
+
+            RankedEntry(Entry entry, BigInteger rank, long sequenceNumber) {
+                this.entry = entry;
+                this.rank = rank;
+                this.sequenceNumber = sequenceNumber;
+            }
+        }
+
+        private final String cellLabel;
+        private final PriorityQueue<RankedEntry> entries = new PriorityQueue<>(
+                Comparator.<RankedEntry, BigInteger>comparing(e -> e.rank).thenComparingLong(e -> e.sequenceNumber));
+        private long sequenceNumber = 0;
+
+        BestFirst(String cellName) {
+            this.cellLabel = cellName.startsWith("<") ? cellName : "<" + cellName + ">";
+        }
+
+        @Override
+        void add(ConstrainedTerm term, int depth, boolean superheated) {
+            entries.add(new RankedEntry(new Entry(term, depth, superheated), rank(term.term()), sequenceNumber++));
+        }
+
+        @Override
+        Entry poll() {
+            RankedEntry rankedEntry = entries.poll();
+            return rankedEntry != null ? rankedEntry.entry : null;
+        }
+
+        @Override
+        boolean isEmpty() {
+            return entries.isEmpty();
+        }
+
+        private BigInteger rank(Term term) {
+            BigInteger rank = BigInteger.ZERO;
+            for (Term content : term.getCellContentsByName(cellLabel)) {
+                if (content instanceof IntToken) {
+                    rank = rank.add(((IntToken) content).bigIntegerValue());
+                } else if (content instanceof Collection) {
+                    rank = rank.add(BigInteger.valueOf(((Collection) content).concreteSize()));
+                } else {
+                    rank = rank.add(BigInteger.ONE);
+                }
+            }
+            return rank;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.backend.java.symbolic;
+
+import org.kframework.backend.java.kil.BuiltinList;
+import org.kframework.backend.java.kil.BuiltinMap;
+import org.kframework.backend.java.kil.BuiltinSet;
+import org.kframework.backend.java.kil.ConstrainedTerm;
+import org.kframework.backend.java.kil.KCollection;
+import org.kframework.backend.java.kil.KItem;
+import org.kframework.backend.java.kil.KLabelConstant;
+import org.kframework.backend.java.kil.Term;
+import org.kframework.backend.java.kil.Token;
+import org.kframework.backend.java.kil.Variable;
+
+import java.util.Map;
+
+/**
+ * Computes a 128-bit structural fingerprint of a {@link ConstrainedTerm}.
+ * <p>
+ * The fingerprint is consistent with {@link ConstrainedTerm#equals}: the elements of associative-commutative
+ * collections and the entries of substitutions are combined in an order-independent way, and terms
+ * without a dedicated case contribute their {@link Term#hashCode()}. Distinct states may collide, with
+ * negligible probability for any practical number of states.
+ */
+final class StateFingerprint {
+
+    private long high = 0x243F6A8885A308D3L;
+    private long low = 0x13198A2E03707344L;
+
+    private StateFingerprint() { }
+
+    /**
+     * Returns the fingerprint of the given state as a pair {@code {high, low}}.
+     */
+    static long[] of(ConstrainedTerm state) {
+        StateFingerprint fingerprint = new StateFingerprint();
+        fingerprint.term(state.term());
+        fingerprint.constraint(state.constraint());
+        return new long[]{fingerprint.high, fingerprint.low};
+    }
+
+    private void add(long value) {
+        high = (Long.rotateLeft(high, 27) ^ mix(value)) * 0x9E3779B97F4A7C15L;
+        low = (Long.rotateLeft(low, 31) + mix(value ^ 0xC2B2AE3D27D4EB4FL)) * 0xFF51AFD7ED558CCDL;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+        z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return z ^ (z >>> 33);
+    }
+
+    private void add(String string) {
+        add(string.length());
+        long chunk = 0;
+        for (int i = 0; i < string.length(); i++) {
+            chunk = (chunk << 16) | string.charAt(i);
+            if ((i & 3) == 3) {
+                add(chunk);
+                chunk = 0;
+            }
+        }
+        add(chunk);
+    }
+
+    private void tag(Object object) {
+        add(object.getClass().getName().hashCode());
+    }
+
+    /**
+     * Adds a combination of the fingerprints of the given terms which does not depend on their order.
+     */
+    private void addUnordered(Iterable<? extends Term> terms) {
+        long sumHigh = 0;
+        long sumLow = 0;
+        long count = 0;
+        for (Term term : terms) {
+            StateFingerprint element = new StateFingerprint();
+            element.term(term);
+            sumHigh += element.high;
+            sumLow += element.low;
+            count++;
+        }
+        add(count);
+        add(sumHigh);
+        add(sumLow);
+    }
+
+    private void addUnorderedEntries(Map<? extends Term, ? extends Term> map) {
+        long sumHigh = 0;
+        long sumLow = 0;
+        for (Map.Entry<? extends Term, ? extends Term> entry : map.entrySet()) {
+            StateFingerprint element = new StateFingerprint();
+            element.term(entry.getKey());
+            element.term(entry.getValue());
+            sumHigh += element.high;
+            sumLow += element.low;
+        }
+        add(map.size());
+        add(sumHigh);
+        add(sumLow);
+    }
+
+    private void term(Term term) {
+        tag(term);
+        if (term instanceof KItem) {
+            term(((KItem) term).kLabel());
+            term(((KItem) term).kList());
+        } else if (term instanceof KCollection) {
+            KCollection collection = (KCollection) term;
+            add(collection.getContents().size());
+            for (Term element : collection.getContents()) {
+                term(element);
+            }
+            if (collection.hasFrame()) {
+                term(collection.frame());
+            }
+        } else if (term instanceof BuiltinList) {
+            BuiltinList list = (BuiltinList) term;
+            add(list.sort.name());
+            add(list.children.size());
+            for (Term element : list.children) {
+                term(element);
+            }
+        } else if (term instanceof BuiltinMap) {
+            BuiltinMap map = (BuiltinMap) term;
+            addUnorderedEntries(map.getEntries());
+            addUnordered(map.baseTerms());
+        } else if (term instanceof BuiltinSet) {
+            BuiltinSet set = (BuiltinSet) term;
+            addUnordered(set.elements());
+            addUnordered(set.baseTerms());
+        } else if (term instanceof Token) {
+            add(((Token) term).sort().name());
+            add(((Token) term).javaBackendValue());
+        } else if (term instanceof Variable) {
+            add(((Variable) term).name());
+        } else if (term instanceof KLabelConstant) {
+            add(((KLabelConstant) term).label());
+        } else {
+            add(term.hashCode());
+        }
+    }
+
+    private void constraint(ConjunctiveFormula constraint) {
+        addUnorderedEntries(constraint.substitution());
+        add(constraint.equalities().size());
+        for (Equality equality : constraint.equalities()) {
+            term(equality.leftHandSide());
+            term(equality.rightHandSide());
+        }
+        add(constraint.disjunctions().size());
+        for (DisjunctiveFormula disjunction : constraint.disjunctions()) {
+            add(disjunction.hashCode());
+        }
+    }
+}
@@ -8,12 +8,15 @@ import org.apache.commons.lang3.tuple.Pair;
 import org.kframework.Strategy;
 import org.kframework.attributes.Att;
 import org.kframework.backend.java.builtins.BoolToken;
+import org.kframework.backend.java.builtins.FloatToken;
 import org.kframework.backend.java.builtins.FreshOperations;
+import org.kframework.backend.java.builtins.StringToken;
 import org.kframework.backend.java.compile.KOREtoBackendKIL;
 import org.kframework.backend.java.kil.BuiltinList;
 import org.kframework.backend.java.kil.ConstrainedTerm;
 import org.kframework.backend.java.kil.Definition;
 import org.kframework.backend.java.kil.GlobalContext;
+import org.kframework.backend.java.kil.InnerRHSRewrite;
 import org.kframework.backend.java.kil.KItem;
 import org.kframework.backend.java.kil.KLabelConstant;
 import org.kframework.backend.java.kil.KList;
@@ -22,26 +25,37 @@ import org.kframework.backend.java.kil.Sort;
 import org.kframework.backend.java.kil.Term;
 import org.kframework.backend.java.kil.TermContext;
 import org.kframework.backend.java.kil.Variable;
+import org.kframework.backend.java.rewritemachine.CompiledRHS;
+import org.kframework.backend.java.rewritemachine.GenerateRHSInstructions;
+import org.kframework.backend.java.rewritemachine.RHSInstruction;
 import org.kframework.backend.java.strategies.TransitionCompositeStrategy;
+import org.kframework.backend.java.util.Coverage;
 import org.kframework.backend.java.util.JavaKRunState;
+import org.kframework.backend.java.util.Profiler;
+import org.kframework.backend.java.util.RewriteEngineUtils;
 import org.kframework.builtin.KLabels;
 import org.kframework.kil.ASTNode;
 import org.kframework.frontend.FindK;
 import org.kframework.frontend.K;
 import org.kframework.frontend.KApply;
 import org.kframework.frontend.KORE;
+import org.kframework.krun.KRunOptions;
 import org.kframework.krun.api.KRunState;
 import org.kframework.rewriter.SearchType;
 import org.kframework.utils.BitSet;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -54,12 +68,27 @@ public class SymbolicRewriter {
     private final Stopwatch stopwatch = Stopwatch.createUnstarted();
     private final KOREtoBackendKIL constructor;
     private boolean transition;
-    private final Set<ConstrainedTerm> superheated = Sets.newHashSet();
-    private final Set<ConstrainedTerm> newSuperheated = Sets.newHashSet();
+    private final Set<ConstrainedTerm> superheated = Sets.newConcurrentHashSet();
+    private final Set<ConstrainedTerm> newSuperheated = Sets.newConcurrentHashSet();
     private final KRunState.Counter counter;
-    private final FastRuleMatcher theFastMatcher;
+    /**
+     * The matcher keeps per-match state, so each thread rewriting with this rewriter needs its own.
+     */
+    private final ThreadLocal<FastRuleMatcher> theFastMatcher;
     private final Definition definition;
     private final BitSet allRuleBits;
+    private final Profiler profiler;
+    private final Coverage coverage;
+    private final KRunOptions.RHSEvaluation rhsEvaluation;
+    /**
+     * The instruction schedules of the right-hand sides of the rewrites in the rule automaton, generated on first use.
+     * The schedule of a right-hand side containing a binder is empty, as binders are only handled by substitution.
+     */
+    private final Map<Term, List<RHSInstruction>> rhsSchedules = new ConcurrentHashMap<>();
+    /**
+     * The compiled schedules of the right-hand sides in {@link #rhsSchedules}, if the rewriter runs in compiled mode.
+     */
+    private final Map<Term, CompiledRHS> compiledRHSs = new ConcurrentHashMap<>();
 
     public SymbolicRewriter(GlobalContext global, List<String> transitions,
                             KRunState.Counter counter, KOREtoBackendKIL constructor) {
@@ -70,8 +99,36 @@ public class SymbolicRewriter {
         this.counter = counter;
         this.strategy = new TransitionCompositeStrategy(transitions);
         this.transitions = transitions;
-        this.theFastMatcher = new FastRuleMatcher(global, definition.ruleTable.size());
+        this.theFastMatcher = ThreadLocal.withInitial(() -> new FastRuleMatcher(global, definition.ruleTable.size()));
         this.transition = true;
+        this.profiler = global.profiler;
+        this.coverage = global.coverage;
+        this.rhsEvaluation = global.rhsEvaluation;
+        if (rhsEvaluation == KRunOptions.RHSEvaluation.COMPILED) {
+            compileRules();
+        }
+    }
+
+    /**
+     * Compiles the right-hand sides of the rewrites in the rule automaton and the side conditions of the rules.
+     */
+    private void compileRules() {
+        if (definition.automaton != null) {
+            definition.automaton.leftHandSide().accept(new BottomUpVisitor() {
+                @Override
+                public void visit(InnerRHSRewrite innerRHSRewrite) {
+                    for (Term rhs : innerRHSRewrite.theRHS) {
+                        if (rhs != null) {
+                            compiledRHS(rhs);
+                        }
+                    }
+                }
+            });
+        }
+        for (Rule rule : definition.ruleTable.values()) {
+            rule.compiledRequires();
+            rule.compiledLookups();
+        }
     }
 
     public KOREtoBackendKIL getConstructor() {
@@ -95,6 +152,10 @@ public class SymbolicRewriter {
         stopwatch.stop();
         if (afterVariableRename.termContext().global().krunOptions.experimental.statistics) {
             System.err.println("[" + step + ", " + stopwatch + " ]");
+            System.err.println(definition.ruleIndex().statistics());
+            System.err.println(afterVariableRename.termContext().global().functionMemo.statistics());
+            System.err.println("[interned tokens: " + StringToken.cacheSize() + " strings, " + FloatToken.cacheSize() + " floats]");
+            afterVariableRename.termContext().global().constraintOps.printStatistics();
         }
 
         return finalState;
@@ -160,15 +221,20 @@ public class SymbolicRewriter {
         if (definition.automaton == null) {
             return results;
         }
-        List<FastRuleMatcher.RuleMatchResult> matches = theFastMatcher.matchRulePattern(
-                subject,
-                definition.automaton.leftHandSide(),
-                allRuleBits,
-                narrowing,
-                computeOne,
-                transitions,
-                proofFlag,
-                subject.termContext());
+        // narrowing may unify the top of the <k> cell with the rules of any head
+        BitSet ruleMask = narrowing ? allRuleBits : definition.ruleIndex().ruleMask(subject.term());
+        // a subject without candidate rules is still stuck, and gets the #STUCK flag below
+        List<FastRuleMatcher.RuleMatchResult> matches = ruleMask.isEmpty()
+                ? Collections.emptyList()
+                : theFastMatcher.get().matchRulePattern(
+                        subject,
+                        definition.automaton.leftHandSide(),
+                        ruleMask,
+                        narrowing,
+                        computeOne,
+                        transitions,
+                        proofFlag,
+                        subject.termContext());
         for (FastRuleMatcher.RuleMatchResult matchResult : matches) {
             Rule rule = definition.ruleTable.get(matchResult.ruleIndex);
             Substitution<Variable, Term> substitution =
@@ -180,33 +246,41 @@ public class SymbolicRewriter {
             // get a map from AST paths to (fine-grained, inner) rewrite RHSs
             assert (matchResult.rewrites.size() > 0);
             Term theNew;
-            if (matchResult.rewrites.size() == 1)
-            // use the more efficient implementation if we only have one rewrite
-            {
-                theNew = buildRHS(subject.term(), substitution, matchResult.rewrites.keySet().iterator().next(),
-                        matchResult.rewrites.values().iterator().next(), subject.termContext());
-            } else {
-                theNew = buildRHS(subject.term(), substitution,
-                        matchResult.rewrites.entrySet().stream().map(e -> Pair.of(e.getKey(), e.getValue())).collect(Collectors.toList()),
-                        subject.termContext());
-            }
+            ConjunctiveFormula constraint;
+            profiler.start(Profiler.Category.RHS, rule);
+            try {
+                // the instruction schedules are only run on concrete execution, where the substitution is complete
+                boolean useInstructions = matchResult.isMatching && rhsEvaluation != KRunOptions.RHSEvaluation.TRANSFORMER;
+                if (matchResult.rewrites.size() == 1)
+                // use the more efficient implementation if we only have one rewrite
+                {
+                    theNew = buildRHS(subject.term(), substitution, matchResult.rewrites.keySet().iterator().next(),
+                            matchResult.rewrites.values().iterator().next(), useInstructions, subject.termContext());
+                } else {
+                    theNew = buildRHS(subject.term(), substitution,
+                            matchResult.rewrites.entrySet().stream().map(e -> Pair.of(e.getKey(), e.getValue())).collect(Collectors.toList()),
+                            useInstructions, subject.termContext());
+                }
 
-            if (!matchResult.isMatching) {
-                theNew = theNew.substituteAndEvaluate(substitution, subject.termContext());
-            }
+                if (!matchResult.isMatching) {
+                    theNew = theNew.substituteAndEvaluate(substitution, subject.termContext());
+                }
 
-            theNew = restoreConfigurationIfNecessary(subject, rule, theNew);
+                theNew = restoreConfigurationIfNecessary(subject, rule, theNew);
 
-            /* eliminate bindings of the substituted variables */
-            ConjunctiveFormula constraint = matchResult.constraint;
-            constraint = constraint.removeBindings(rule.variableSet());
+                /* eliminate bindings of the substituted variables */
+                constraint = matchResult.constraint;
+                constraint = constraint.removeBindings(rule.variableSet());
 
-            /* get fresh substitutions of rule variables */
-            Map<Variable, Variable> renameSubst = Variable.rename(rule.variableSet());
+                /* get fresh substitutions of rule variables */
+                Map<Variable, Variable> renameSubst = Variable.rename(rule.variableSet());
 
-            /* rename rule variables in both the term and the constraint */
-            theNew = theNew.substituteWithBinders(renameSubst);
-            constraint = ((ConjunctiveFormula) constraint.substituteWithBinders(renameSubst)).simplify(subject.termContext());
+                /* rename rule variables in both the term and the constraint */
+                theNew = theNew.substituteWithBinders(renameSubst);
+                constraint = ((ConjunctiveFormula) constraint.substituteWithBinders(renameSubst)).simplify(subject.termContext());
+            } finally {
+                profiler.stop();
+            }
 
             ConstrainedTerm result = new ConstrainedTerm(theNew, constraint, subject.termContext());
             if (!matchResult.isMatching) {
@@ -224,6 +298,7 @@ public class SymbolicRewriter {
                 continue;
             }
 
+            coverage.print(rule);
             results.add(result);
         }
 
@@ -290,23 +365,21 @@ public class SymbolicRewriter {
      * goes down the path on the subject to find the rewrite place, does the substitution, and reconstructs the term
      * on its way up
      */
-    private Term buildRHS(Term subject, Substitution<Variable, Term> substitution, scala.collection.immutable.List<Pair<Integer, Integer>> path, Term rhs, TermContext context) {
+    private Term buildRHS(Term subject, Substitution<Variable, Term> substitution, scala.collection.immutable.List<Pair<Integer, Integer>> path, Term rhs, boolean useInstructions, TermContext context) {
         if (path.isEmpty()) {
-            return rhs.substituteAndEvaluate(substitution, context);
+            return substituteAndEvaluate(rhs, substitution, useInstructions, context);
         } else {
             if (subject instanceof KItem) {
                 KItem kItemSubject = (KItem) subject;
                 List<Term> newContents = new ArrayList<>(((KList) kItemSubject.kList()).getContents());
-                newContents.set(path.head().getLeft(), buildRHS(newContents.get(path.head().getLeft()), substitution, (scala.collection.immutable.List<Pair<Integer, Integer>>) path.tail(), rhs, context));
+                newContents.set(path.head().getLeft(), buildRHS(newContents.get(path.head().getLeft()), substitution, (scala.collection.immutable.List<Pair<Integer, Integer>>) path.tail(), rhs, useInstructions, context));
                 return KItem.of(kItemSubject.kLabel(), KList.concatenate(newContents), context.global()).applyAnywhereRules(context);
             } else if (subject instanceof BuiltinList) {
                 BuiltinList builtinListSubject = (BuiltinList) subject;
-                List<Term> newContents = new ArrayList<>(builtinListSubject.children);
-                newContents.set(path.head().getLeft(), buildRHS(newContents.get(path.head().getLeft()), substitution, (scala.collection.immutable.List<Pair<Integer, Integer>>) path.tail(), rhs, context));
-                return BuiltinList
-                        .builder(builtinListSubject.sort, builtinListSubject.operatorKLabel, builtinListSubject.unitKLabel, builtinListSubject.globalContext())
-                        .addAll(newContents)
-                        .build();
+                int index = path.head().getLeft();
+                Term newChild = buildRHS(builtinListSubject.get(index), substitution, (scala.collection.immutable.List<Pair<Integer, Integer>>) path.tail(), rhs, useInstructions, context);
+                // the children around the rewrite place are shared with the subject
+                return builtinListSubject.with(index, newChild);
             } else {
                 throw new AssertionError("unexpected rewrite in subject: " + subject);
             }
@@ -317,9 +390,9 @@ public class SymbolicRewriter {
      * goes down each of the the paths on the subject to find the rewrite place, does the substitution,
      * and reconstructs the term on its way up
      */
-    private Term buildRHS(Term subject, Substitution<Variable, Term> substitution, List<Pair<scala.collection.immutable.List<Pair<Integer, Integer>>, Term>> rewrites, TermContext context) {
+    private Term buildRHS(Term subject, Substitution<Variable, Term> substitution, List<Pair<scala.collection.immutable.List<Pair<Integer, Integer>>, Term>> rewrites, boolean useInstructions, TermContext context) {
         if (rewrites.size() == 1 && rewrites.get(0).getLeft().isEmpty()) {
-            return rewrites.get(0).getRight().substituteAndEvaluate(substitution, context);
+            return substituteAndEvaluate(rewrites.get(0).getRight(), substitution, useInstructions, context);
         }
 
         Map<Pair<Integer, Integer>, List<Pair<scala.collection.immutable.List<Pair<Integer, Integer>>, Term>>> commonPath = rewrites.stream().collect(Collectors.groupingBy(rw -> rw.getLeft().head()));
@@ -339,7 +412,7 @@ public class SymbolicRewriter {
             if (commonPath.containsKey(pair)) {
                 List<Pair<scala.collection.immutable.List<Pair<Integer, Integer>>, Term>> theInnerRewrites = commonPath.get(pair).stream().map(p -> Pair.of(
                         (scala.collection.immutable.List<Pair<Integer, Integer>>) p.getLeft().tail(), p.getRight())).collect(Collectors.toList());
-                newContents.add(buildRHS(contents.get(i), substitution, theInnerRewrites, context));
+                newContents.add(buildRHS(contents.get(i), substitution, theInnerRewrites, useInstructions, context));
             } else {
                 newContents.add(contents.get(i));
             }
@@ -357,6 +430,59 @@ public class SymbolicRewriter {
         }
     }
 
+    /**
+     * Applies the substitution to the right-hand side of a rewrite and evaluates the resulting functions,
+     * either by running the (compiled) instruction schedule of the right-hand side, which shares its ground
+     * subterms and allocates no transformer, or by {@link Term#substituteAndEvaluate}.
+     */
+    private Term substituteAndEvaluate(Term rhs, Substitution<Variable, Term> substitution, boolean useInstructions, TermContext context) {
+        if (useInstructions) {
+            if (rhsEvaluation == KRunOptions.RHSEvaluation.COMPILED) {
+                CompiledRHS compiled = compiledRHS(rhs);
+                if (compiled != null) {
+                    return compiled.construct(substitution, context);
+                }
+            } else {
+                List<RHSInstruction> schedule = rhsSchedules.computeIfAbsent(rhs, SymbolicRewriter::rhsSchedule);
+                if (!schedule.isEmpty()) {
+                    return RewriteEngineUtils.construct(schedule, substitution, context);
+                }
+            }
+        }
+        return rhs.substituteAndEvaluate(substitution, context);
+    }
+
+    /**
+     * Returns the compiled schedule of the given right-hand side, or null if it has no schedule.
+     */
+    private CompiledRHS compiledRHS(Term rhs) {
+        CompiledRHS compiled = compiledRHSs.get(rhs);
+        if (compiled == null) {
+            List<RHSInstruction> schedule = rhsSchedules.computeIfAbsent(rhs, SymbolicRewriter::rhsSchedule);
+            if (schedule.isEmpty()) {
+                return null;
+            }
+            compiled = compiledRHSs.computeIfAbsent(rhs, t -> CompiledRHS.compile(schedule));
+        }
+        return compiled;
+    }
+
+    private static List<RHSInstruction> rhsSchedule(Term rhs) {
+        boolean[] hasBinder = {false};
+        rhs.accept(new BottomUpVisitor() {
+            @Override
+            public void visit(KLabelConstant kLabelConstant) {
+                hasBinder[0] |= kLabelConstant.isMetaBinder();
+            }
+        });
+        if (hasBinder[0]) {
+            return Collections.emptyList();
+        }
+        GenerateRHSInstructions generator = new GenerateRHSInstructions();
+        rhs.accept(generator);
+        return generator.getInstructions();
+    }
+
     /**
      * Builds the result of rewrite based on the unification constraint.
      * It applies the unification constraint on the right-hand side of the rewrite rule,
@@ -466,92 +592,312 @@ public class SymbolicRewriter {
         stopwatch.start();
 
         List<K> searchResults = new ArrayList<>();
-        Set<ConstrainedTerm> visited = Sets.newHashSet();
+        VisitedStates visited = VisitedStates.of(context.global().krunOptions.experimental.stateStore);
+        try {
+            ConstrainedTerm initCnstrTerm = new ConstrainedTerm(initialTerm, context);
+
+            // If depth is 0 then we are just trying to match the pattern.
+            // A more clean solution would require a bit of a rework to how patterns
+            // are handled in krun.Main when not doing search.
+            if (depth == 0) {
+                addSearchResult(searchResults, initCnstrTerm, pattern, bound, context, substitution);
+                stopwatch.stop();
+                if (context.global().krunOptions.experimental.statistics) {
+                    System.err.println("[" + visited.size() + "states, " + 0 + "steps, " + stopwatch + "]");
+                    context.global().constraintOps.printStatistics();
+                }
+                return disjunctResults(searchResults);
+            }
+
+            // The search queues will map terms to their depth in terms of transitions.
+            Map<ConstrainedTerm, Integer> queue = Maps.newLinkedHashMap();
+            Map<ConstrainedTerm, Integer> nextQueue = Maps.newLinkedHashMap();
+
+            visited.add(initCnstrTerm);
+            queue.put(initCnstrTerm, 0);
+
+            if (searchType == SearchType.ONE) {
+                depth = 1;
+            }
+            if (searchType == SearchType.STAR) {
+                if (addSearchResult(searchResults, initCnstrTerm, pattern, bound, context, substitution)) {
+                    stopwatch.stop();
+                    if (context.global().krunOptions.experimental.statistics) {
+                        System.err.println("[" + visited.size() + "states, " + 0 + "steps, " + stopwatch + "]");
+                        context.global().constraintOps.printStatistics();
+                    }
+                    return disjunctResults(searchResults);
+                }
+            }
+
+            if (context.global().krunOptions.searchStrategy != KRunOptions.SearchStrategy.BFS) {
+                int steps = searchFrontier(initCnstrTerm, visited, searchResults, pattern, bound, depth, searchType, context, substitution);
+                stopwatch.stop();
+                if (context.global().krunOptions.experimental.statistics) {
+                    System.err.println("[" + steps + "steps, " + stopwatch + "]");
+                    context.global().constraintOps.printStatistics();
+                }
+                return disjunctResults(searchResults);
+            }
+
+            ForkJoinPool pool = context.global().krunOptions.experimental.searchThreads > 1
+                    ? new ForkJoinPool(context.global().krunOptions.experimental.searchThreads)
+                    : null;
+
+            int step = 0;
+            try {
+            label:
+                for (step = 0; !queue.isEmpty(); ++step) {
+                    superheated.clear();
+                    superheated.addAll(newSuperheated);
+                    newSuperheated.clear();
+                    int currentStep = step;
+                    List<ForkedStep<List<ConstrainedTerm>>> layerResults = pool != null
+                            ? computeInForks(new ArrayList<>(queue.keySet()), term -> computeRewriteStep(term, currentStep, false), pool)
+                            : null;
+                    int index = 0;
+                    for (Map.Entry<ConstrainedTerm, Integer> entry : queue.entrySet()) {
+                        ConstrainedTerm term = entry.getKey();
+                        Integer currentDepth = entry.getValue();
+
+                        List<ConstrainedTerm> results = layerResults != null
+                                ? joinRewriteStep(term, layerResults.get(index++), step)
+                                : computeRewriteStep(term, step, false);
+
+                        if (results.isEmpty() && searchType == SearchType.FINAL) {
+                            if (addSearchResult(searchResults, term, pattern, bound, context, substitution)) {
+                                break label;
+                            }
+                        }
+
+                        for (ConstrainedTerm result : results) {
+                            if (!transition) {
+                                nextQueue.put(result, currentDepth);
+                                break;
+                            } else {
+                                // Continue searching if we haven't reached our target
+                                // depth and we haven't already visited this state.
+                                if (currentDepth + 1 != depth && visited.add(result)) {
+                                    nextQueue.put(result, currentDepth + 1);
+                                }
+                                // If we aren't searching for only final results, then
+                                // also add this as a result if it matches the pattern.
+                                if (searchType != SearchType.FINAL || currentDepth + 1 == depth) {
+                                    if (addSearchResult(searchResults, result, pattern, bound, context, substitution)) {
+                                        break label;
+                                    }
+                                }
+                            }
+                        }
+                    }
 
-        ConstrainedTerm initCnstrTerm = new ConstrainedTerm(initialTerm, context);
+                    /* swap the queues */
+                    Map<ConstrainedTerm, Integer> temp;
+                    temp = queue;
+                    queue = nextQueue;
+                    nextQueue = temp;
+                    nextQueue.clear();
+                }
+            } finally {
+                if (pool != null) {
+                    pool.shutdown();
+                }
+            }
 
-        // If depth is 0 then we are just trying to match the pattern.
-        // A more clean solution would require a bit of a rework to how patterns
-        // are handled in krun.Main when not doing search.
-        if (depth == 0) {
-            addSearchResult(searchResults, initCnstrTerm, pattern, bound, context, substitution);
             stopwatch.stop();
-            if (context.global().krunOptions.experimental.statistics)
-                System.err.println("[" + visited.size() + "states, " + 0 + "steps, " + stopwatch + "]");
+            if (context.global().krunOptions.experimental.statistics) {
+                System.err.println("[" + visited.size() + "states, " + step + "steps, " + stopwatch + "]");
+                context.global().constraintOps.printStatistics();
+            }
             return disjunctResults(searchResults);
+        } finally {
+            visited.close();
         }
+    }
 
-        // The search queues will map terms to their depth in terms of transitions.
-        Map<ConstrainedTerm, Integer> queue = Maps.newLinkedHashMap();
-        Map<ConstrainedTerm, Integer> nextQueue = Maps.newLinkedHashMap();
-
-        visited.add(initCnstrTerm);
-        queue.put(initCnstrTerm, 0);
-
-        if (searchType == SearchType.ONE) {
-            depth = 1;
+    /**
+     * Searches the states reachable from the given term in the order of the {@link SearchFrontier} of the
+     * selected strategy, one state at a time. Iterative deepening repeats a depth-first search with a depth
+     * limit doubled at each iteration, until the search bound is reached or an iteration explores every
+     * reachable state without being cut off by its limit.
+     *
+     * @return the number of expanded states
+     */
+    private int searchFrontier(
+            ConstrainedTerm initialTerm,
+            VisitedStates visited,
+            List<K> searchResults,
+            Rule pattern,
+            int bound,
+            int depth,
+            SearchType searchType,
+            TermContext context,
+            boolean substitution) {
+        KRunOptions options = context.global().krunOptions;
+        if (options.searchStrategy != KRunOptions.SearchStrategy.ITERATIVE_DEEPENING) {
+            return exploreFrontier(initialTerm, visited, searchResults, pattern, bound, depth, depth, searchType, context, substitution).expanded;
         }
-        if (searchType == SearchType.STAR) {
-            if (addSearchResult(searchResults, initCnstrTerm, pattern, bound, context, substitution)) {
-                stopwatch.stop();
-                if (context.global().krunOptions.experimental.statistics)
-                    System.err.println("[" + visited.size() + "states, " + 0 + "steps, " + stopwatch + "]");
-                return disjunctResults(searchResults);
+
+        int initialResults = searchResults.size();
+        int steps = 0;
+        // the visited states of the iterations after the first one, closed here as search closes only its own
+        VisitedStates iterationVisited = visited;
+        try {
+            for (int limit = 1; ; limit *= 2) {
+                if (depth > 0 && limit >= depth) {
+                    limit = depth;
+                }
+                if (limit != 1) {
+                    if (iterationVisited != visited) {
+                        iterationVisited.close();
+                    }
+                    iterationVisited = VisitedStates.of(options.experimental.stateStore);
+                    iterationVisited.add(initialTerm);
+                    searchResults.subList(initialResults, searchResults.size()).clear();
+                }
+                Exploration exploration = exploreFrontier(initialTerm, iterationVisited, searchResults, pattern, bound, depth, limit, searchType, context, substitution);
+                steps += exploration.expanded;
+                if (exploration.boundReached || !exploration.cutOff || limit == depth) {
+                    return steps;
+                }
+            }
+        } finally {
+            if (iterationVisited != visited) {
+                iterationVisited.close();
             }
         }
+    }
+
+    private static final class Exploration {
+        int expanded = 0;
+        boolean boundReached = false;
+        /** Whether some state was not expanded because it lies at the depth limit of the exploration. */
+        boolean cutOff = false;
+    }
 
-        int step;
-    label:
-        for (step = 0; !queue.isEmpty(); ++step) {
+    /**
+     * Expands the states reachable from the given term in the order of the frontier, without expanding the
+     * states at depth {@code limit}. The states at the search {@code depth} count as final. Under a limit,
+     * the visited states remember the smallest depth they were reached at, so that every state within the
+     * limit is expanded whatever the order of the frontier.
+     */
+    private Exploration exploreFrontier(
+            ConstrainedTerm initialTerm,
+            VisitedStates visited,
+            List<K> searchResults,
+            Rule pattern,
+            int bound,
+            int depth,
+            int limit,
+            SearchType searchType,
+            TermContext context,
+            boolean substitution) {
+        Exploration exploration = new Exploration();
+        SearchFrontier frontier = SearchFrontier.of(context.global().krunOptions);
+        frontier.add(initialTerm, 0, false);
+        while (!frontier.isEmpty()) {
+            SearchFrontier.Entry entry = frontier.poll();
             superheated.clear();
-            superheated.addAll(newSuperheated);
+            if (entry.superheated) {
+                superheated.add(entry.term);
+            }
             newSuperheated.clear();
-            for (Map.Entry<ConstrainedTerm, Integer> entry : queue.entrySet()) {
-                ConstrainedTerm term = entry.getKey();
-                Integer currentDepth = entry.getValue();
 
-                List<ConstrainedTerm> results = computeRewriteStep(term, step, false);
+            List<ConstrainedTerm> results = computeRewriteStep(entry.term, exploration.expanded++, false);
 
-                if (results.isEmpty() && searchType == SearchType.FINAL) {
-                    if (addSearchResult(searchResults, term, pattern, bound, context, substitution)) {
-                        break label;
-                    }
+            if (results.isEmpty() && searchType == SearchType.FINAL) {
+                if (addSearchResult(searchResults, entry.term, pattern, bound, context, substitution)) {
+                    exploration.boundReached = true;
+                    return exploration;
                 }
+            }
 
-                for (ConstrainedTerm result : results) {
-                    if (!transition) {
-                        nextQueue.put(result, currentDepth);
-                        break;
-                    } else {
-                        // Continue searching if we haven't reached our target
-                        // depth and we haven't already visited this state.
-                        if (currentDepth + 1 != depth && visited.add(result)) {
-                            nextQueue.put(result, currentDepth + 1);
-                        }
-                        // If we aren't searching for only final results, then
-                        // also add this as a result if it matches the pattern.
-                        if (searchType != SearchType.FINAL || currentDepth + 1 == depth) {
-                            if (addSearchResult(searchResults, result, pattern, bound, context, substitution)) {
-                                break label;
-                            }
-                        }
+            for (ConstrainedTerm result : results) {
+                if (entry.depth + 1 != limit) {
+                    // under a depth limit, a state reached at a smaller depth than before is expanded again
+                    if (visited.add(result, limit > 0 ? entry.depth + 1 : 0)) {
+                        frontier.add(result, entry.depth + 1, newSuperheated.contains(result));
+                    }
+                } else if (limit != depth) {
+                    exploration.cutOff = true;
+                }
+                if (searchType != SearchType.FINAL || entry.depth + 1 == depth) {
+                    if (addSearchResult(searchResults, result, pattern, bound, context, substitution)) {
+                        exploration.boundReached = true;
+                        return exploration;
                     }
                 }
             }
+        }
+        return exploration;
+    }
 
-            /* swap the queues */
-            Map<ConstrainedTerm, Integer> temp;
-            temp = queue;
-            queue = nextQueue;
-            nextQueue = temp;
-            nextQueue.clear();
+    /**
+     * The outcome of a step computed speculatively in a {@link TermContext#speculativeFork} of the context of a term.
+     */
+    private static final class ForkedStep<T> {
+        final T outcome;
+        final TermContext fork;
+
+        ForkedStep(T outcome, TermContext fork) {
+            this.outcome = outcome;
+            this.fork = fork;
         }
+    }
 
-        stopwatch.stop();
-        if (context.global().krunOptions.experimental.statistics) {
-            System.err.println("[" + visited.size() + "states, " + step + "steps, " + stopwatch + "]");
+    /**
+     * Computes the given step of each of the given terms in the given pool, each one in a speculative fork of
+     * the context of its term, as the fresh counter of a context is not thread-safe. The outcomes are in the
+     * order of the given terms, so that the caller can take them over one after another with
+     * {@link TermContext#join}.
+     */
+    private static <T> List<ForkedStep<T>> computeInForks(
+            List<ConstrainedTerm> terms,
+            Function<ConstrainedTerm, T> step,
+            ForkJoinPool pool) {
+        return invokeInPool(pool, () -> terms.parallelStream()
+                .map(term -> {
+                    TermContext fork = term.termContext().speculativeFork();
+                    return new ForkedStep<>(step.apply(new ConstrainedTerm(term.term(), term.constraint(), fork)), fork);
+                })
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Takes over the rewrite step of the given term computed in a fork of its context, or computes it again in
+     * its context if the fresh constants of the fork clash with those generated by the steps taken over before.
+     * Either way the results are the ones of the sequential search, up to the names of renamed variables.
+     * A step computed again is counted twice by the coverage and the profiler.
+     */
+    private List<ConstrainedTerm> joinRewriteStep(ConstrainedTerm term, ForkedStep<List<ConstrainedTerm>> forkedStep, int step) {
+        if (!term.termContext().join(forkedStep.fork)) {
+            return computeRewriteStep(term, step, false);
+        }
+        return rebind(forkedStep.outcome, term.termContext());
+    }
+
+    private static List<ConstrainedTerm> rebind(List<ConstrainedTerm> terms, TermContext context) {
+        List<ConstrainedTerm> result = new ArrayList<>(terms.size());
+        for (ConstrainedTerm term : terms) {
+            result.add(term.termContext() == context ? term : new ConstrainedTerm(term.term(), term.constraint(), context));
+        }
+        return result;
+    }
+
+    private static <T> T invokeInPool(ForkJoinPool pool, Callable<T> task) {
+        try {
+            return pool.submit(task).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            } else if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
         }
-        return disjunctResults(searchResults);
     }
 
     private K kApplyConversion(K k) {
@@ -593,101 +939,136 @@ public class SymbolicRewriter {
             ConstrainedTerm targetTerm,
             List<Rule> specRules) {
         List<ConstrainedTerm> proofResults = new ArrayList<>();
-        Set<ConstrainedTerm> visited = new HashSet<>();
         List<ConstrainedTerm> queue = new ArrayList<>();
         List<ConstrainedTerm> nextQueue = new ArrayList<>();
 
         initialTerm = initialTerm.expandPatterns(true);
 
-        visited.add(initialTerm);
-        queue.add(initialTerm);
-        boolean guarded = false;
-        int step = 0;
-        while (!queue.isEmpty()) {
-            step++;
-            for (ConstrainedTerm term : queue) {
-                if (term.implies(targetTerm)) {
-                    continue;
-                }
-
-                /* TODO(AndreiS): terminate the proof with failure based on the klabel _~>_
-                List<Term> leftKContents = term.term().getCellContentsByName("<k>");
-                List<Term> rightKContents = targetTerm.term().getCellContentsByName("<k>");
-                // TODO(YilongL): the `get(0)` seems hacky
-                if (leftKContents.size() == 1 && rightKContents.size() == 1) {
-                    Pair<Term, Variable> leftKPattern = KSequence.splitContentAndFrame(leftKContents.get(0));
-                    Pair<Term, Variable> rightKPattern = KSequence.splitContentAndFrame(rightKContents.get(0));
-                    if (leftKPattern.getRight() != null && rightKPattern.getRight() != null
-                            && leftKPattern.getRight().equals(rightKPattern.getRight())) {
-                        BoolToken matchable = MetaK.matchable(
-                                leftKPattern.getLeft(),
-                                rightKPattern.getLeft(),
-                                term.termContext());
-                        if (matchable != null && matchable.booleanValue()) {
-                            proofResults.add(term);
-                            continue;
-                        }
+        VisitedStates visited = VisitedStates.of(initialTerm.termContext().global().krunOptions.experimental.stateStore);
+        int threads = initialTerm.termContext().global().krunOptions.experimental.proveThreads;
+        ForkJoinPool pool = threads > 1 ? new ForkJoinPool(threads) : null;
+
+        try {
+            visited.add(initialTerm);
+            queue.add(initialTerm);
+
+            boolean guarded = false;
+            int step = 0;
+            while (!queue.isEmpty()) {
+                step++;
+                ConstrainedTerm initial = initialTerm;
+                boolean currentGuarded = guarded;
+                List<ForkedStep<ProofStep>> layerSteps = pool != null
+                        ? computeInForks(queue, term -> computeProofStep(term, initial, targetTerm, specRules, currentGuarded), pool)
+                        : null;
+                for (int i = 0; i < queue.size(); i++) {
+                    ConstrainedTerm term = queue.get(i);
+                    ProofStep proofStep = layerSteps != null
+                            ? joinProofStep(term, layerSteps.get(i), initialTerm, targetTerm, specRules, guarded)
+                            : computeProofStep(term, initialTerm, targetTerm, specRules, guarded);
+
+                    if (proofStep.isFinal) {
+                        proofResults.add(term);
                     }
-                }*/
-
-                if (guarded) {
-                    ConstrainedTerm result = applySpecRules(term, specRules);
-                    if (result != null) {
-                        if (visited.add(result))
+                    for (ConstrainedTerm result : proofStep.successors) {
+                        if (visited.add(result)) {
                             nextQueue.add(result);
-                        continue;
+                        }
                     }
                 }
 
-                List<ConstrainedTerm> results = fastComputeRewriteStep(term, false, true, true);
-                if (results.isEmpty()) {
-                    /* final term */
-                    proofResults.add(term);
-                } else {
-//                    for (Rule rule : appliedRules) {
-//                        System.err.println(rule.getLocation() + " " + rule.getSource());
-//                    }
-
-                    /* add helper rule */
-                    HashSet<Variable> ruleVariables = new HashSet<>(initialTerm.variableSet());
-                    ruleVariables.addAll(targetTerm.variableSet());
-
-                    /*
-                    rules.add(new Rule(
-                            term.term().substitute(freshSubstitution, definition),
-                            targetTerm.term().substitute(freshSubstitution, definition),
-                            term.constraint().substitute(freshSubstitution, definition),
-                            Collections.<Variable>emptyList(),
-                            new SymbolicConstraint(definition).substitute(freshSubstitution, definition),
-                            IndexingPair.getIndexingPair(term.term()),
-                            new Attributes()));
-                     */
-                }
+                /* swap the queues */
+                List<ConstrainedTerm> temp;
+                temp = queue;
+                queue = nextQueue;
+                nextQueue = temp;
+                nextQueue.clear();
+                guarded = true;
+            }
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+            visited.close();
+        }
+        return proofResults;
+    }
 
-                for (ConstrainedTerm cterm : results) {
-                    ConstrainedTerm result = new ConstrainedTerm(
-                            cterm.term(),
-                            cterm.constraint().removeBindings(
-                                    Sets.difference(
-                                            cterm.constraint().substitution().keySet(),
-                                            initialTerm.variableSet())),
-                            cterm.termContext());
-                    if (visited.add(result)) {
-                        nextQueue.add(result);
-                    }
-                }
+    /**
+     * The outcome of one step of the symbolic execution of a proof obligation.
+     */
+    private static final class ProofStep {
+        /**
+         * True if the term cannot be rewritten any further without implying the target.
+         */
+        final boolean isFinal;
+        final List<ConstrainedTerm> successors;
+
+        ProofStep(boolean isFinal, List<ConstrainedTerm> successors) {
+            this.isFinal = isFinal;
+            this.successors = successors;
+        }
+    }
+
+    private static final ProofStep PROVED_STEP = new ProofStep(false, Collections.emptyList());
+
+    /**
+     * Takes over the proof step of the given term computed in a fork of its context, or computes it again in
+     * its context if the fresh constants of the fork clash with those generated by the steps taken over before.
+     * The proof explores one layer of the execution tree at a time: the steps of a layer are computed in
+     * parallel, and taken over in order, so that the proof results are the ones of the sequential exploration,
+     * up to the names of renamed variables.
+     */
+    private ProofStep joinProofStep(
+            ConstrainedTerm term,
+            ForkedStep<ProofStep> forkedStep,
+            ConstrainedTerm initialTerm,
+            ConstrainedTerm targetTerm,
+            List<Rule> specRules,
+            boolean guarded) {
+        if (!term.termContext().join(forkedStep.fork)) {
+            return computeProofStep(term, initialTerm, targetTerm, specRules, guarded);
+        }
+        ProofStep proofStep = forkedStep.outcome;
+        return proofStep.successors.isEmpty()
+                ? proofStep
+                : new ProofStep(proofStep.isFinal, rebind(proofStep.successors, term.termContext()));
+    }
+
+    private ProofStep computeProofStep(
+            ConstrainedTerm term,
+            ConstrainedTerm initialTerm,
+            ConstrainedTerm targetTerm,
+            List<Rule> specRules,
+            boolean guarded) {
+        if (term.implies(targetTerm)) {
+            return PROVED_STEP;
+        }
+
+        if (guarded) {
+            ConstrainedTerm result = applySpecRules(term, specRules);
+            if (result != null) {
+                return new ProofStep(false, Collections.singletonList(result));
             }
+        }
 
-            /* swap the queues */
-            List<ConstrainedTerm> temp;
-            temp = queue;
-            queue = nextQueue;
-            nextQueue = temp;
-            nextQueue.clear();
-            guarded = true;
+        List<ConstrainedTerm> results = fastComputeRewriteStep(term, false, true, true);
+        if (results.isEmpty()) {
+            /* final term */
+            return new ProofStep(true, Collections.emptyList());
         }
 
-        return proofResults;
+        List<ConstrainedTerm> successors = new ArrayList<>(results.size());
+        for (ConstrainedTerm cterm : results) {
+            successors.add(new ConstrainedTerm(
+                    cterm.term(),
+                    cterm.constraint().removeBindings(
+                            Sets.difference(
+                                    cterm.constraint().substitution().keySet(),
+                                    initialTerm.variableSet())),
+                    cterm.termContext()));
+        }
+        return new ProofStep(false, successors);
     }
 
     /**
@@ -0,0 +1,106 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.backend.java.symbolic;
+
+import org.kframework.backend.java.kil.ConstrainedTerm;
+import org.kframework.backend.java.util.FingerprintTable;
+import org.kframework.krun.KRunOptions;
+
+import java.io.Closeable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The set of states already explored by {@link SymbolicRewriter#search} and
+ * {@link SymbolicRewriter#proveRule}, which close them once done to release their storage.
+ *
+ * @see KRunOptions.StateStore
+ */
+public abstract class VisitedStates implements Closeable {
+
+    /**
+     * Adds the given state and returns {@code true} if it was not visited before.
+     */
+    public boolean add(ConstrainedTerm state) {
+        return add(state, 0);
+    }
+
+    /**
+     * Adds the given state reached at the given depth, and returns {@code true} if it was not visited before
+     * at this depth or a smaller one. A search with a depth limit expands a state again when it reaches it at a
+     * smaller depth than before, as the states beyond the limit then come within it.
+     */
+    public abstract boolean add(ConstrainedTerm state, int depth);
+
+    public abstract int size();
+
+    /**
+     * Releases the storage of the visited states, after which no state may be added. Closing them again has no effect.
+     */
+    @Override
+    public void close() {
+    }
+
+    public static VisitedStates of(KRunOptions.StateStore store) {
+        switch (store) {
+        case EXACT:
+            return new Exact();
+        case FINGERPRINT:
+            return new Fingerprinted(FingerprintTable.Storage.HEAP);
+        case OFF_HEAP:
+            return new Fingerprinted(FingerprintTable.Storage.OFF_HEAP);
+        case MAPPED:
+            return new Fingerprinted(FingerprintTable.Storage.MAPPED);
+        default:
+            throw new AssertionError("unexpected state store: " + store);
+        }
+    }
+
+    /**
+     * Keeps every visited state, which is exact but retains whole configurations.
+     */
+    private static final class Exact extends VisitedStates {
+        private final Map<ConstrainedTerm, Integer> states = new ConcurrentHashMap<>();
+
+        @Override
+        public boolean add(ConstrainedTerm state, int depth) {
+            boolean[] added = new boolean[1];
+            states.compute(state, (key, visitedDepth) -> {
+                added[0] = visitedDepth == null || depth < visitedDepth;
+                return added[0] ? depth : visitedDepth;
+            });
+            return added[0];
+        }
+
+        @Override
+        public int size() {
+            return states.size();
+        }
+    }
+
+    /**
+     * Keeps only the 128-bit {@link StateFingerprint} of each visited state.
+     */
+    private static final class Fingerprinted extends VisitedStates {
+        private final FingerprintTable table;
+
+        private Fingerprinted(FingerprintTable.Storage storage) {
+            this.table = new FingerprintTable(storage);
+        }
+
+        @Override
+        public boolean add(ConstrainedTerm state, int depth) {
+            long[] fingerprint = StateFingerprint.of(state);
+            return table.add(fingerprint[0], fingerprint[1], depth);
+        }
+
+        @Override
+        public int size() {
+            return table.size();
+        }
+
+        @Override
+        public void close() {
+            table.close();
+        }
+    }
+}
@@ -3,83 +3,231 @@ package org.kframework.backend.java.util;
 
 import org.kframework.backend.java.kil.*;
 import org.kframework.attributes.Source;
+import org.kframework.krun.KRunOptions;
 import org.kframework.utils.errorsystem.KEMException;
 
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
-
-import static org.apache.commons.io.FileUtils.writeStringToFile;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * For measuring semantic coverage
+ * <p>
+ * The locations of the rules and terms applied are appended to a buffer of the recording thread, and
+ * each buffer is drained to the coverage file when it is full and when the run ends ({@link #flush}),
+ * so that the file is opened once per run instead of once per location. Depending on
+ * {@link KRunOptions.Experimental#coverageFormat}, the file holds:
+ * <ul>
+ * <li>{@code trace}: one location per line, in the order of application within each thread, appended
+ * to the locations of the previous runs;</li>
+ * <li>{@code counts}: one line per distinct location, with the number of times it was applied in the
+ * last run, most applied first;</li>
+ * <li>{@code binary}: the trace of the last run as a sequence of big-endian ints, each the index of a
+ * location; an int equal to -1 is followed by a modified UTF-8 string (see {@link DataOutputStream#writeUTF})
+ * which defines the location of the next unused index, and is then followed by that index.</li>
+ * </ul>
  *
  * @author daejunpark
  */
 public class Coverage {
 
     /**
-     * Print location information of {@code constrainedTerm} into {@code file}.
-     * - If {@code file} is null, then it does nothing.
+     * The number of locations a thread buffers before draining them to the file.
+     */
+    private static final int BUFFER_SIZE = 4096;
+
+    private static final Coverage DISABLED = new Coverage(null, null);
+
+    private final File file;
+    private final KRunOptions.CoverageFormat format;
+
+    private final ThreadLocal<List<String>> buffers;
+    private final Queue<List<String>> allBuffers = new ConcurrentLinkedQueue<>();
+
+    /* the fields below are guarded by this */
+    private DataOutputStream out;
+    private final Map<String, Integer> indices = new HashMap<>();
+    private final Map<String, long[]> counts = new HashMap<>();
+
+    private Coverage(File file, KRunOptions.CoverageFormat format) {
+        this.file = file;
+        this.format = format;
+        this.buffers = ThreadLocal.withInitial(() -> {
+            List<String> buffer = new ArrayList<>(BUFFER_SIZE);
+            allBuffers.add(buffer);
+            return buffer;
+        });
+    }
+
+    public static Coverage of(KRunOptions options) {
+        if (options == null || options.experimental.coverage == null) {
+            return DISABLED;
+        }
+        return new Coverage(options.experimental.coverage, options.experimental.coverageFormat);
+    }
+
+    public boolean isEnabled() {
+        return file != null;
+    }
+
+    /**
+     * Record location information of {@code constrainedTerm}.
      * - If the location information is not available, then it does nothing.
      *
-     * @param file could be null.
      * @param constrainedTerm should not be null.
      */
-    public static void print(File file, ConstrainedTerm constrainedTerm) {
+    public void print(ConstrainedTerm constrainedTerm) {
         if (file != null) {
-            print(file, getSourceLocation(constrainedTerm));
+            print(getSourceLocation(constrainedTerm));
         }
     }
 
     /**
-     * Print location information of {@code term} into {@code file}.
-     * - If {@code file} is {@code null}, then it does nothing.
+     * Record location information of {@code term}.
      * - If the location information is not available, then it does nothing.
      *
-     * @param file could be null.
      * @param term should not be null.
      */
-    public static void print(File file, Term term) {
+    public void print(Term term) {
         if (file != null) {
-            print(file, getSourceLocation(term));
+            print(getSourceLocation(term));
         }
     }
 
     /**
-     * Print location information of {@code rule} into {@code file}.
-     * - If {@code file} is {@code null}, then it does nothing.
+     * Record location information of {@code rule}.
      * - If the location information is not available, then it does nothing.
      *
-     * @param file could be null.
      * @param rule should not be null.
      */
-    public static void print(File file, Rule rule) {
+    public void print(Rule rule) {
         if (file != null) {
-            print(file, getSourceLocation(rule));
+            print(getSourceLocation(rule));
         }
     }
 
-    private synchronized static void print(File file, String string) {
-        if (file != null && string != null) {
+    private void print(String string) {
+        if (string != null) {
+            List<String> buffer = buffers.get();
+            synchronized (buffer) {
+                buffer.add(string);
+                if (buffer.size() >= BUFFER_SIZE) {
+                    drain(buffer);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes all the buffered locations to the coverage file, and closes it. The next location recorded
+     * starts a new run.
+     */
+    public void flush() {
+        if (file == null) {
+            return;
+        }
+        // a thread buffer is always locked before this, as in print
+        for (List<String> buffer : allBuffers) {
+            synchronized (buffer) {
+                drain(buffer);
+            }
+        }
+        synchronized (this) {
             try {
-                writeStringToFile(file, string + "\n", true);
+                if (format == KRunOptions.CoverageFormat.COUNTS) {
+                    writeCounts();
+                    counts.clear();
+                } else {
+                    // opened even if the run recorded nothing, so that a binary file only holds this run
+                    out().close();
+                    out = null;
+                    indices.clear();
+                }
             } catch (IOException e) {
+                out = null;
                 throw KEMException.internalError("Could not write to " + file, e);
             }
         }
     }
 
+    /**
+     * Returns the stream of this run to the coverage file, opening it on first use. A trace is appended to
+     * the file, while a binary trace replaces it, as its indices are only defined within a run.
+     */
+    private DataOutputStream out() throws IOException {
+        if (out == null) {
+            boolean append = format == KRunOptions.CoverageFormat.TRACE;
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, append), 1 << 16));
+        }
+        return out;
+    }
+
+    private synchronized void drain(List<String> buffer) {
+        try {
+            if (format == KRunOptions.CoverageFormat.COUNTS) {
+                for (String location : buffer) {
+                    counts.computeIfAbsent(location, l -> new long[1])[0]++;
+                }
+            } else {
+                DataOutputStream stream = out();
+                for (String location : buffer) {
+                    if (format == KRunOptions.CoverageFormat.BINARY) {
+                        Integer index = indices.get(location);
+                        if (index == null) {
+                            index = indices.size();
+                            indices.put(location, index);
+                            stream.writeInt(-1);
+                            stream.writeUTF(location);
+                        }
+                        stream.writeInt(index);
+                    } else {
+                        stream.write((location + "\n").getBytes(StandardCharsets.UTF_8));
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw KEMException.internalError("Could not write to " + file, e);
+        }
+        buffer.clear();
+    }
+
+    private void writeCounts() throws IOException {
+        List<Map.Entry<String, long[]>> entries = new ArrayList<>(counts.entrySet());
+        entries.sort(Comparator.comparingLong((Map.Entry<String, long[]> e) -> e.getValue()[0]).reversed());
+        try (Writer writer = new OutputStreamWriter(new BufferedOutputStream(new FileOutputStream(file)), StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, long[]> entry : entries) {
+                writer.write(entry.getValue()[0] + " " + entry.getKey() + "\n");
+            }
+        }
+    }
+
     private static String getSourceLocation(ConstrainedTerm constrainedTerm) {
         return getSourceLocation(constrainedTerm.term());
     }
 
     private static String getSourceLocation(Term term) {
         String s = null; // Return null, if location information is not available.
-        Term t = term.getCellContentsByName("<k>").get(0);
+        List<Term> kCells = term.getCellContentsByName("<k>");
+        if (kCells.isEmpty()) {
+            return null;
+        }
+        Term t = kCells.get(0);
         if (t instanceof KSequence && ((KSequence) t).concreteSize() > 0) {
             t = ((KSequence) t).get(0);
         }
-        if (t instanceof KItem) {
+        if (t instanceof KItem && t.getSource() != null) {
             Source source = t.getSource();
             s = source.toString() + ":" + t.getLocation().toString();
         }
@@ -87,9 +235,10 @@ public class Coverage {
     }
 
     private static String getSourceLocation(Rule rule) {
-        String s; // Return null, if location information is not available.
         Source source = rule.getSource();
-        s = source.toString() + ":" + rule.getLocation().toString();
-        return s;
+        if (source == null) {
+            return null;
+        }
+        return source.toString() + ":" + rule.getLocation();
     }
 }
@@ -0,0 +1,296 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.backend.java.util;
+
+import org.kframework.utils.errorsystem.KEMException;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * An open-addressing hash set of 128-bit fingerprints, stored as pairs of longs in a {@link LongBuffer}
+ * which lives on the Java heap, off the heap, or in a memory-mapped temporary file.
+ * The all-zero fingerprint is reserved for empty slots and is stored as {@code (0, 1)}.
+ * Each fingerprint comes with the smallest depth it was added at, stored in an {@link IntBuffer} next to it.
+ * Closing the table unmaps and deletes its temporary file, if any.
+ */
+public class FingerprintTable implements Closeable {
+
+    public enum Storage {
+        /** At most 2^29 slots, as a heap buffer holds at most 2^31 - 1 longs. */
+        HEAP(1 << 29),
+        /** At most 2^26 slots, as a direct buffer holds at most 2^31 - 1 bytes. */
+        OFF_HEAP(1 << 26),
+        /** At most 2^26 slots, as a mapped buffer holds at most 2^31 - 1 bytes. */
+        MAPPED(1 << 26);
+
+        /**
+         * The largest number of slots of a table in this storage.
+         */
+        final int maxCapacity;
+
+        Storage(int maxCapacity) {
+            this.maxCapacity = maxCapacity;
+        }
+    }
+
+    private static final int INITIAL_CAPACITY = 1 << 12;
+
+    /**
+     * The number of bytes taken by a slot: two longs for the fingerprint, and an int for its depth.
+     */
+    private static final int SLOT_BYTES = 20;
+
+    private final Storage storage;
+    private final int maxCapacity;
+    private LongBuffer table;
+    private IntBuffer depths;
+    /**
+     * The temporary file of a {@link Storage#MAPPED} table, created once and reused as the table grows.
+     */
+    private File mappedFile;
+    /**
+     * The mapped regions of the temporary file holding the fingerprints and the depths of a {@link Storage#MAPPED} table.
+     */
+    private MappedByteBuffer mappedTable;
+    private MappedByteBuffer mappedDepths;
+    private int capacity;
+    private int size;
+
+    public FingerprintTable(Storage storage) {
+        this(storage, storage.maxCapacity);
+    }
+
+    FingerprintTable(Storage storage, int maxCapacity) {
+        this.storage = storage;
+        this.maxCapacity = Math.min(maxCapacity, storage.maxCapacity);
+        this.capacity = Math.min(INITIAL_CAPACITY, this.maxCapacity);
+        allocate(capacity);
+    }
+
+    /**
+     * Adds the fingerprint {@code (high, low)} and returns {@code true} if it was not already present.
+     */
+    public boolean add(long high, long low) {
+        return add(high, low, 0);
+    }
+
+    /**
+     * Adds the fingerprint {@code (high, low)} at the given depth, and returns {@code true} if it was not
+     * already present at this depth or a smaller one.
+     */
+    public synchronized boolean add(long high, long low, int depth) {
+        if (high == 0 && low == 0) {
+            low = 1;
+        }
+        int slot = find(table, capacity, high, low);
+        if (table.get(2 * slot) != 0 || table.get(2 * slot + 1) != 0) {
+            if (depths.get(slot) <= depth) {
+                return false;
+            }
+            depths.put(slot, depth);
+            return true;
+        }
+        if ((size + 1) * 4L > capacity * 3L) {
+            grow();
+            slot = find(table, capacity, high, low);
+        }
+        table.put(2 * slot, high);
+        table.put(2 * slot + 1, low);
+        depths.put(slot, depth);
+        size++;
+        return true;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of bytes taken by the table.
+     */
+    public synchronized long bytes() {
+        return capacity * (long) SLOT_BYTES;
+    }
+
+    /**
+     * Returns the temporary file of a {@link Storage#MAPPED} table, or {@code null} if it has none.
+     */
+    synchronized File mappedFile() {
+        return mappedFile;
+    }
+
+    /**
+     * Returns the slot of the fingerprint {@code (high, low)}, or the empty slot where it belongs.
+     */
+    private static int find(LongBuffer table, int capacity, long high, long low) {
+        int mask = capacity - 1;
+        int slot = (int) (high ^ (high >>> 32)) & mask;
+        while (true) {
+            long slotHigh = table.get(2 * slot);
+            long slotLow = table.get(2 * slot + 1);
+            if (slotHigh == 0 && slotLow == 0 || slotHigh == high && slotLow == low) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private void grow() {
+        if (capacity >= maxCapacity) {
+            throw KEMException.criticalError("Too many visited states to fingerprint in the "
+                    + storage.name().toLowerCase().replace('_', '-') + " state store: " + size
+                    + ". Its table holds at most " + maxCapacity + " slots.");
+        }
+        int newCapacity = capacity * 2;
+        LongBuffer oldTable = table;
+        IntBuffer oldDepths = depths;
+        MappedByteBuffer movedTable = null;
+        MappedByteBuffer movedDepths = null;
+        if (storage == Storage.MAPPED) {
+            // the new table takes the place of the old one in the file, so the old one is first moved past it
+            long movedPosition = SLOT_BYTES * (long) newCapacity;
+            movedTable = map(movedPosition, 16L * capacity);
+            movedDepths = map(movedPosition + 16L * capacity, 4L * capacity);
+            oldTable = movedTable.asLongBuffer();
+            oldDepths = movedDepths.asIntBuffer();
+            for (int i = 0; i < 2 * capacity; i++) {
+                oldTable.put(i, table.get(i));
+            }
+            for (int i = 0; i < capacity; i++) {
+                oldDepths.put(i, depths.get(i));
+            }
+        }
+        MappedByteBuffer replacedTable = mappedTable;
+        MappedByteBuffer replacedDepths = mappedDepths;
+        allocate(newCapacity);
+        for (int slot = 0; slot < capacity; slot++) {
+            long high = oldTable.get(2 * slot);
+            long low = oldTable.get(2 * slot + 1);
+            if (high != 0 || low != 0) {
+                int newSlot = find(table, newCapacity, high, low);
+                table.put(2 * newSlot, high);
+                table.put(2 * newSlot + 1, low);
+                depths.put(newSlot, oldDepths.get(slot));
+            }
+        }
+        capacity = newCapacity;
+        if (storage == Storage.MAPPED) {
+            unmap(replacedTable);
+            unmap(replacedDepths);
+            unmap(movedTable);
+            unmap(movedDepths);
+            try (RandomAccessFile file = new RandomAccessFile(mappedFile, "rw")) {
+                file.setLength(SLOT_BYTES * (long) newCapacity);
+            } catch (IOException e) {
+                // the old table stays in the file, which is deleted on close anyway
+            }
+        }
+    }
+
+    /**
+     * Releases the storage of the table, after which no fingerprint may be added. A {@link Storage#MAPPED} table
+     * unmaps and deletes its temporary file, which would otherwise take up to {@code SLOT_BYTES * maxCapacity} bytes
+     * of disk until the process exits. Closing a table again has no effect.
+     */
+    @Override
+    public synchronized void close() {
+        table = null;
+        depths = null;
+        if (mappedFile != null) {
+            unmap(mappedTable);
+            unmap(mappedDepths);
+            mappedTable = null;
+            mappedDepths = null;
+            mappedFile.delete();
+            mappedFile = null;
+        }
+    }
+
+    /**
+     * Allocates the fingerprints and the depths of an empty table with the given number of slots.
+     */
+    private void allocate(int capacity) {
+        switch (storage) {
+        case HEAP:
+            table = LongBuffer.allocate(2 * capacity);
+            depths = IntBuffer.allocate(capacity);
+            return;
+        case OFF_HEAP:
+            table = ByteBuffer.allocateDirect(16 * capacity).asLongBuffer();
+            depths = ByteBuffer.allocateDirect(4 * capacity).asIntBuffer();
+            return;
+        case MAPPED:
+            boolean reused = mappedFile != null;
+            mappedTable = map(0, 16L * capacity);
+            mappedDepths = map(16L * capacity, 4L * capacity);
+            table = mappedTable.asLongBuffer();
+            depths = mappedDepths.asIntBuffer();
+            if (reused) {
+                // the file still holds the old table
+                for (int i = 0; i < 2 * capacity; i++) {
+                    table.put(i, 0);
+                }
+                for (int i = 0; i < capacity; i++) {
+                    depths.put(i, 0);
+                }
+            }
+            return;
+        default:
+            throw new AssertionError("unexpected storage: " + storage);
+        }
+    }
+
+    /**
+     * Maps the given number of bytes of the temporary file from the given position, creating the file if needed.
+     */
+    private MappedByteBuffer map(long position, long bytes) {
+        try {
+            if (mappedFile == null) {
+                mappedFile = File.createTempFile("k-visited-states", ".bin");
+            }
+            try (RandomAccessFile file = new RandomAccessFile(mappedFile, "rw")) {
+                return file.getChannel().map(FileChannel.MapMode.READ_WRITE, position, bytes);
+            }
+        } catch (IOException e) {
+            throw KEMException.criticalError("Could not map the visited state table to a file.", e);
+        }
+    }
+
+    /**
+     * Unmaps the given buffer at once rather than when it is garbage collected, so that the disk space of the regions
+     * of the file it maps is reclaimed. The buffer must not be accessed afterwards. Java 8 has no public way to do
+     * this, so the buffer is left to the garbage collector if neither the cleaner of the buffer nor
+     * {@code Unsafe.invokeCleaner} of later releases is accessible.
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        if (buffer == null) {
+            return;
+        }
+        try {
+            Field theUnsafe = Class.forName("sun.misc.Unsafe").getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            Object unsafe = theUnsafe.get(null);
+            try {
+                unsafe.getClass().getMethod("invokeCleaner", ByteBuffer.class).invoke(unsafe, buffer);
+            } catch (NoSuchMethodException e) {
+                Method cleaner = buffer.getClass().getMethod("cleaner");
+                cleaner.setAccessible(true);
+                Object bufferCleaner = cleaner.invoke(buffer);
+                if (bufferCleaner != null) {
+                    bufferCleaner.getClass().getMethod("clean").invoke(bufferCleaner);
+                }
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // the buffer is unmapped when it is garbage collected
+        }
+    }
+}
@@ -0,0 +1,97 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.backend.java.util;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.kframework.backend.java.kil.KItem;
+import org.kframework.backend.java.kil.KLabelConstant;
+import org.kframework.backend.java.kil.Term;
+import org.kframework.krun.KRunOptions;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Memoizes the results of the ground applications of the functions tagged {@code [memo]}.
+ * <p>
+ * Each function has its own table, keyed by the application itself, so that lookups use the cached
+ * {@link Term#hashCode} of the arguments. A table holds at most {@link KRunOptions.Experimental#memoSize}
+ * results and evicts the least recently used ones first. Only ground results are memoized: a result with
+ * variables may contain fresh variables, which must differ between applications.
+ */
+public class FunctionMemo {
+
+    private static final class Table {
+        final Cache<KItem, Term> results;
+        final LongAdder hits = new LongAdder();
+        final LongAdder misses = new LongAdder();
+
+        Table(int size) {
+            results = CacheBuilder.newBuilder().maximumSize(size).build();
+        }
+    }
+
+    private final int size;
+    private final Map<KLabelConstant, Table> tables = new ConcurrentHashMap<>();
+
+    public FunctionMemo(int size) {
+        this.size = size;
+    }
+
+    public static FunctionMemo of(KRunOptions options) {
+        return new FunctionMemo(options != null ? options.experimental.memoSize : 0);
+    }
+
+    /**
+     * Returns true if the result of the given function application may be memoized.
+     */
+    public boolean isMemoized(KItem kItem) {
+        return size > 0
+                && kItem.kLabel() instanceof KLabelConstant
+                && ((KLabelConstant) kItem.kLabel()).isMemo()
+                && kItem.isGround();
+    }
+
+    /**
+     * Returns the memoized result of the given function application, or null if there is none.
+     */
+    public Term get(KItem kItem) {
+        Table table = table(kItem);
+        Term result = table.results.getIfPresent(kItem);
+        if (result != null) {
+            table.hits.increment();
+        } else {
+            table.misses.increment();
+        }
+        return result;
+    }
+
+    public void put(KItem kItem, Term result) {
+        if (result.isGround()) {
+            table(kItem).results.put(kItem, result);
+        }
+    }
+
+    private Table table(KItem kItem) {
+        return tables.computeIfAbsent((KLabelConstant) kItem.kLabel(), l -> new Table(size));
+    }
+
+    /**
+     * Returns the number of hits and misses of each memoized function, most used first.
+     */
+    public String statistics() {
+        List<Map.Entry<KLabelConstant, Table>> entries = new ArrayList<>(tables.entrySet());
+        entries.sort(Comparator.comparingLong((Map.Entry<KLabelConstant, Table> e) ->
+                e.getValue().hits.sum() + e.getValue().misses.sum()).reversed());
+        StringBuilder sb = new StringBuilder("[memoized functions:");
+        for (Map.Entry<KLabelConstant, Table> entry : entries) {
+            sb.append(String.format(" %s %d hits %d misses %d entries;", entry.getKey().label(),
+                    entry.getValue().hits.sum(), entry.getValue().misses.sum(), entry.getValue().results.size()));
+        }
+        return sb.append("]").toString();
+    }
+}
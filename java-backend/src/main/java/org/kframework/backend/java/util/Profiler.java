@@ -1,160 +1,277 @@
 // Copyright (c) 2014-2016 K Team. All Rights Reserved.
 package org.kframework.backend.java.util;
 
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Map;
-import java.util.SortedSet;
-import java.util.TreeSet;
-import java.util.concurrent.TimeUnit;
-
-import org.apache.commons.collections4.comparators.ReverseComparator;
+import org.apache.commons.lang3.StringEscapeUtils;
+import org.apache.commons.lang3.tuple.Pair;
 import org.kframework.backend.java.kil.KLabelConstant;
+import org.kframework.backend.java.kil.Rule;
+import org.kframework.krun.KRunOptions;
+import org.kframework.utils.errorsystem.KEMException;
 
-import com.google.common.base.Stopwatch;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
- * Profiling class.
+ * Records the number of invocations and the time spent in each rule and function, broken down by
+ * {@link Category}, and exports them at the end of a run.
  * <p>
- * TODO(YilongL): for now, it's only used for profiling krun without search; I
- * will need to refactor it later to make it general.
- *
- * @author YilongL
+ * Invocations are aggregated in a call tree shared by all threads: the nodes of the tree hold
+ * {@link LongAdder} counters and each thread only keeps the stack of its open invocations, so
+ * that rewriting threads do not contend on a lock. A recursive invocation of a rule or function is
+ * folded into the node of its outermost invocation on the call stack, so that the depth of the tree is
+ * bounded by the number of distinct rules and functions. When profiling is disabled, {@link #start}
+ * and {@link #stop} return immediately.
  *
+ * @see KRunOptions.Experimental#profileFile
  */
 public class Profiler {
 
-    public static final InheritableThreadLocal<Boolean> enableProfilingMode = new InheritableThreadLocal<Boolean>() {
-        @Override
-        protected Boolean initialValue() {
-            return false;
-        }
-    };
+    public enum Category {
+        MATCH("match"), SIDE_CONDITION("side-condition"), RHS("rhs"), FUNCTION("function"), SMT("smt");
 
-    public static final ReentrantStopwatch QUERY_RULE_INDEXING_TIMER            =   new ReentrantStopwatch("Query rule indexing");
-    public static final ReentrantStopwatch REWRITE_WITH_KOMPILED_RULES_TIMER    =   new ReentrantStopwatch("Rewrite with kompiled rules");
-    public static final ReentrantStopwatch REWRITE_WITH_UNKOMPILED_RULES_TIMER  =   new ReentrantStopwatch("Rewrite with unkompiled rules");
+        private final String name;
 
-    public static final ReentrantStopwatch PATTERN_MATCH_TIMER              =   new ReentrantStopwatch("Pattern match");
-    public static final ReentrantStopwatch EVALUATE_SIDE_CONDITIONS_TIMER   =   new ReentrantStopwatch("Evaluate side conditions");
-    public static final ReentrantStopwatch LOCAL_REWRITE_BUILD_RHS_TIMER    =   new ReentrantStopwatch("Build right-hand sides of local rewrites");
+        Category(String name) {
+            this.name = name;
+        }
 
-    public static final ReentrantStopwatch EVALUATE_LOOKUP_CHOICE_TIMER     =   new ReentrantStopwatch("Evaluate data-structure lookup & choice operations");
-    public static final ReentrantStopwatch EVALUATE_REQUIRES_TIMER          =   new ReentrantStopwatch("Evaluate requires");
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
 
-    public static final ReentrantStopwatch DEEP_CLONE_TIMER                 =   new ReentrantStopwatch("Deep clone");
+    private static final class Node {
+        final Node parent;
+        final Category category;
+        /** The rule, the function label, or the name of the invocation. */
+        final Object key;
+        /**
+         * The nodes of the invocations made from this one: its children in the tree, and the ancestors
+         * invoked recursively.
+         */
+        final Map<Category, Map<Object, Node>> callees = new EnumMap<>(Category.class);
 
-    private static final Map<KLabelConstant, ReentrantStopwatch> FUNCTION_PROFILING_TIMERS = new HashMap<>();
+        final LongAdder count = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final LongAdder childNanos = new LongAdder();
 
-    public static ReentrantStopwatch getTimerForFunction(KLabelConstant klabel) {
-        if (enableProfilingMode.get()) {
-            synchronized(FUNCTION_PROFILING_TIMERS) {
-                ReentrantStopwatch stopwatch = FUNCTION_PROFILING_TIMERS.get(klabel);
-                if (stopwatch == null) {
-                   stopwatch = new ReentrantStopwatch(klabel.label());
-                   FUNCTION_PROFILING_TIMERS.put(klabel, stopwatch);
-                }
-                return stopwatch;
+        Node(Node parent, Category category, Object key) {
+            this.parent = parent;
+            this.category = category;
+            this.key = key;
+            for (Category c : Category.values()) {
+                callees.put(c, new ConcurrentHashMap<>());
             }
-        } else {
-            return null;
         }
-    }
 
-    public static void startTimer(ReentrantStopwatch timer) {
-        if (enableProfilingMode.get()) {
-            timer.start();
+        /**
+         * Returns the node of an invocation made from this one: the nearest ancestor with the same category
+         * and key, if any, and otherwise a child.
+         */
+        Node callee(Category category, Object key) {
+            return callees.get(category).computeIfAbsent(key, k -> {
+                for (Node node = this; node.parent != null; node = node.parent) {
+                    if (node.category == category && node.key.equals(k)) {
+                        return node;
+                    }
+                }
+                return new Node(this, category, k);
+            });
         }
-    }
 
-    public static void stopTimer(ReentrantStopwatch timer) {
-        if (enableProfilingMode.get()) {
-            timer.stop();
+        /**
+         * Returns the children of this node in the tree.
+         */
+        List<Node> children() {
+            List<Node> children = new ArrayList<>();
+            for (Map<Object, Node> callees : this.callees.values()) {
+                for (Node callee : callees.values()) {
+                    if (callee.parent == this) {
+                        children.add(callee);
+                    }
+                }
+            }
+            return children;
         }
-    }
 
-    public static void resetTimer(ReentrantStopwatch timer) {
-        if (enableProfilingMode.get()) {
-            timer.reset();
+        String name() {
+            if (key instanceof Rule) {
+                return ruleName((Rule) key);
+            } else if (key instanceof KLabelConstant) {
+                return ((KLabelConstant) key).label();
+            }
+            return key.toString();
         }
     }
 
-    public static void printResult() {
-        if (enableProfilingMode.get()) {
-            System.err.printf("%s(mc=%s, eval=%s[%s, %s], rew=%s) + %s%n",
-                    REWRITE_WITH_KOMPILED_RULES_TIMER, PATTERN_MATCH_TIMER,
-                    EVALUATE_SIDE_CONDITIONS_TIMER,
-                    EVALUATE_LOOKUP_CHOICE_TIMER, EVALUATE_REQUIRES_TIMER,
-                    LOCAL_REWRITE_BUILD_RHS_TIMER,
-                    REWRITE_WITH_UNKOMPILED_RULES_TIMER);
-            System.err.println(QUERY_RULE_INDEXING_TIMER);
-            System.err.println(DEEP_CLONE_TIMER);
-            System.err.println("Top 10 most expensive functions:");
-            SortedSet<ReentrantStopwatch> sorted = new TreeSet<>(new ReverseComparator<>());
-            synchronized (FUNCTION_PROFILING_TIMERS) {
-                sorted.addAll(FUNCTION_PROFILING_TIMERS.values());
-            }
-            Iterator<ReentrantStopwatch> iter = sorted.iterator();
-            for (int i = 0; i < 10 && iter.hasNext(); i++) {
-                ReentrantStopwatch stopwatch = iter.next();
-                System.err.printf("%s = %s%n", stopwatch.name, stopwatch.toString());
-            }
+    private static final class Invocation {
+        final Node node;
+        final long startNanos = System.nanoTime();
+        long childNanos = 0;
+
+        Invocation(Node node) {
+            this.node = node;
         }
     }
 
-    private static class ReentrantStopwatch implements Comparable<ReentrantStopwatch> {
+    private final boolean enabled;
+    private final Node root = new Node(null, null, "");
+    private final ThreadLocal<Deque<Invocation>> stacks = ThreadLocal.withInitial(ArrayDeque::new);
 
-        private final String name;
+    public Profiler(boolean enabled) {
+        this.enabled = enabled;
+    }
 
-        private final ThreadLocal<Stopwatch> stopwatch = new ThreadLocal<Stopwatch>() {
-            @Override
-            protected Stopwatch initialValue() {
-                return Stopwatch.createUnstarted();
-            }
-        };
+    public static Profiler of(KRunOptions options) {
+        return new Profiler(options != null && options.experimental.profileFile != null);
+    }
 
-        private final ThreadLocal<Integer> count = new ThreadLocal<Integer>() {
-            @Override
-            protected Integer initialValue() {
-                return 0;
-            }
-        };
+    public boolean isEnabled() {
+        return enabled;
+    }
 
-        public ReentrantStopwatch(String name) {
-            this.name = name;
+    /**
+     * Opens an invocation of the given rule, function label, or named operation. Each call must be
+     * matched by a call to {@link #stop} on the same thread, usually in a {@code finally} block.
+     */
+    public void start(Category category, Object key) {
+        if (!enabled) {
+            return;
         }
+        Deque<Invocation> stack = stacks.get();
+        Node parent = stack.isEmpty() ? root : stack.peek().node;
+        stack.push(new Invocation(parent.callee(category, key)));
+    }
 
-        public void start() {
-            count.set(count.get() + 1);
-            if (count.get() == 1) {
-                stopwatch.get().start();
+    public void stop() {
+        if (!enabled) {
+            return;
+        }
+        Deque<Invocation> stack = stacks.get();
+        Invocation invocation = stack.pop();
+        long elapsed = System.nanoTime() - invocation.startNanos;
+        invocation.node.count.increment();
+        invocation.node.totalNanos.add(elapsed);
+        invocation.node.childNanos.add(invocation.childNanos);
+        if (!stack.isEmpty()) {
+            stack.peek().childNanos += elapsed;
+        }
+    }
+
+    /**
+     * Writes the profile to the file given by {@code --profile-file}, if any.
+     */
+    public void write(KRunOptions options) {
+        if (!enabled) {
+            return;
+        }
+        File file = options.experimental.profileFile;
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            if (options.experimental.profileFormat == KRunOptions.ProfileFormat.FOLDED) {
+                writeFolded(writer);
+            } else {
+                writeJson(writer);
             }
+        } catch (IOException e) {
+            throw KEMException.criticalError("Could not write the profile to " + file, e);
         }
+    }
 
-        public void stop() {
-            count.set(count.get() - 1);
-            if (count.get() == 0) {
-                stopwatch.get().stop();
-            } else if (count.get() < 0) {
-                throw new AssertionError("Unable to stop timer: " + name + "\nTimer already stopped.");
+    /**
+     * Writes one line per call stack in the folded format read by flame graph tools, weighted by the
+     * time in microseconds spent in the innermost frame itself.
+     */
+    private void writeFolded(Writer writer) throws IOException {
+        Deque<Pair<Node, String>> stack = new ArrayDeque<>();
+        for (Node node : root.children()) {
+            stack.push(Pair.of(node, frameName(node)));
+        }
+        while (!stack.isEmpty()) {
+            Pair<Node, String> frame = stack.pop();
+            Node node = frame.getLeft();
+            String path = frame.getRight();
+            long selfMicros = (node.totalNanos.sum() - node.childNanos.sum()) / 1000;
+            if (selfMicros > 0) {
+                writer.write(path + " " + selfMicros + "\n");
+            }
+            for (Node child : node.children()) {
+                stack.push(Pair.of(child, path + ";" + frameName(child)));
             }
         }
+    }
+
+    private static String frameName(Node node) {
+        return (node.category + " " + node.name()).replace(';', ',');
+    }
+
+    private static final class Totals {
+        final Category category;
+        final String name;
+        long count;
+        long totalNanos;
+        long selfNanos;
 
-        public void reset() {
-            count.set(0);
-            stopwatch.get().reset();
+        Totals(Category category, String name) {
+            this.category = category;
+            this.name = name;
         }
+    }
 
-        @Override
-        public String toString() {
-            return stopwatch.get().toString();
+    /**
+     * Writes the invocation count, total time and self time of every rule and function in each category,
+     * summed over all the call stacks in which it occurs. The total time of a recursive function includes
+     * its nested invocations once per level of recursion.
+     */
+    private void writeJson(Writer writer) throws IOException {
+        Map<String, Totals> totals = new LinkedHashMap<>();
+        collect(root, totals);
+        List<Totals> sorted = new ArrayList<>(totals.values());
+        sorted.sort(Comparator.comparingLong((Totals t) -> t.selfNanos).reversed());
+
+        writer.write("[\n");
+        for (int i = 0; i < sorted.size(); i++) {
+            Totals t = sorted.get(i);
+            writer.write(String.format("  {\"category\": \"%s\", \"name\": \"%s\", \"count\": %d, \"totalMicros\": %d, \"selfMicros\": %d}%s%n",
+                    t.category, StringEscapeUtils.escapeJson(t.name), t.count, t.totalNanos / 1000, t.selfNanos / 1000,
+                    i + 1 < sorted.size() ? "," : ""));
         }
+        writer.write("]\n");
+    }
 
-        @Override
-        public int compareTo(ReentrantStopwatch o) {
-            return Long.compare(stopwatch.get().elapsed(TimeUnit.MICROSECONDS),
-                    o.stopwatch.get().elapsed(TimeUnit.MICROSECONDS));
+    private static void collect(Node root, Map<String, Totals> totals) {
+        Deque<Node> stack = new ArrayDeque<>(root.children());
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            String name = node.name();
+            Totals t = totals.computeIfAbsent(node.category + " " + name, k -> new Totals(node.category, name));
+            long total = node.totalNanos.sum();
+            t.count += node.count.sum();
+            t.totalNanos += total;
+            t.selfNanos += total - node.childNanos.sum();
+            node.children().forEach(stack::push);
         }
     }
 
+    private static String ruleName(Rule rule) {
+        if (rule.label() != null && !rule.label().isEmpty()) {
+            return rule.label();
+        }
+        return rule.getSource() + ":" + rule.getLocation();
+    }
 }
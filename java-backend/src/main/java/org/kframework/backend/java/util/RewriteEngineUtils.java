@@ -28,10 +28,11 @@ import org.kframework.backend.java.symbolic.ImmutableMapSubstitution;
 import org.kframework.backend.java.symbolic.PatternMatcher;
 import org.kframework.backend.java.symbolic.RuleAuditing;
 import org.kframework.backend.java.symbolic.Substitution;
+import org.kframework.krun.KRunOptions;
 
+import java.util.ArrayDeque;
 import java.util.Collections;
 import java.util.Deque;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -67,97 +68,101 @@ public class RewriteEngineUtils {
         }
 
         /* evaluate data structure lookups/choices and add bindings for them */
-        Profiler.startTimer(Profiler.EVALUATE_LOOKUP_CHOICE_TIMER);
-        int i = 0;
-        for (Equality equality : rule.lookups().equalities()) {
-            Term lookupOrChoice = equality.leftHandSide();
-            Term nonLookupOrChoice =  equality.rightHandSide();
-            List<RHSInstruction> instructions = rule.instructionsOfLookups().get(i);
-            Term evalLookupOrChoice = construct(instructions, crntSubst, context);
+        context.global().profiler.start(Profiler.Category.SIDE_CONDITION, rule);
+        try {
+            boolean compiled = context.global().rhsEvaluation == KRunOptions.RHSEvaluation.COMPILED;
+            int i = 0;
+            for (Equality equality : rule.lookups().equalities()) {
+                Term lookupOrChoice = equality.leftHandSide();
+                Term nonLookupOrChoice =  equality.rightHandSide();
+                Term evalLookupOrChoice = compiled ?
+                        rule.compiledLookups().get(i).construct(crntSubst, context) :
+                        construct(rule.instructionsOfLookups().get(i), crntSubst, context);
 
-            boolean resolved = false;
-            if (evalLookupOrChoice instanceof Bottom
-                    || DataStructures.isLookupOrChoice(evalLookupOrChoice)) {
-                /* the data-structure lookup or choice operation is either undefined or pending due to symbolic argument(s) */
+                boolean resolved = false;
+                if (evalLookupOrChoice instanceof Bottom
+                        || DataStructures.isLookupOrChoice(evalLookupOrChoice)) {
+                    /* the data-structure lookup or choice operation is either undefined or pending due to symbolic argument(s) */
 
-                // when the operation is pending, it is not really a valid match
-                // for example, matching ``<env>... X |-> V ...</env>''
-                // against ``<env> Rho </env>'' will result in a pending
-                // choice operation due to the unknown ``Rho''.
+                    // when the operation is pending, it is not really a valid match
+                    // for example, matching ``<env>... X |-> V ...</env>''
+                    // against ``<env> Rho </env>'' will result in a pending
+                    // choice operation due to the unknown ``Rho''.
 
-                if (RuleAuditing.isAuditBegun()) {
-                    System.err.println("Matching failure: unable to resolve collection operation "
-                    + lookupOrChoice.substitute(crntSubst) + "; evaluated to "
-                    + evalLookupOrChoice);
-                }
-            } else {
-                if (nonLookupOrChoice instanceof Variable) {
-                    Variable variable = (Variable) nonLookupOrChoice;
-                    if (context.definition().subsorts().isSubsortedEq(variable.sort(), evalLookupOrChoice.sort())) {
-                        Substitution<Variable, Term> newSubst = crntSubst.plus(variable, evalLookupOrChoice);
-                        resolved = newSubst != null;
-                        if (!resolved && RuleAuditing.isAuditBegun()) {
-                            System.err.println("Matching failure: " + variable + " must match both "
-                            + crntSubst.get(variable) + " and " + evalLookupOrChoice);
-                        }
-                        crntSubst = newSubst;
+                    if (RuleAuditing.isAuditBegun()) {
+                        System.err.println("Matching failure: unable to resolve collection operation "
+                        + lookupOrChoice.substitute(crntSubst) + "; evaluated to "
+                        + evalLookupOrChoice);
                     }
                 } else {
-                    // the non-lookup term is not a variable and thus requires further pattern matching
-                    // for example: L:List[Int(#"0")] = '#ostream(_)(I:Int), where L is the output buffer
-                    //           => '#ostream(_)(Int(#"1")) =? '#ostream(_)(I:Int)
+                    if (nonLookupOrChoice instanceof Variable) {
+                        Variable variable = (Variable) nonLookupOrChoice;
+                        if (context.definition().subsorts().isSubsortedEq(variable.sort(), evalLookupOrChoice.sort())) {
+                            Substitution<Variable, Term> newSubst = crntSubst.plus(variable, evalLookupOrChoice);
+                            resolved = newSubst != null;
+                            if (!resolved && RuleAuditing.isAuditBegun()) {
+                                System.err.println("Matching failure: " + variable + " must match both "
+                                + crntSubst.get(variable) + " and " + evalLookupOrChoice);
+                            }
+                            crntSubst = newSubst;
+                        }
+                    } else {
+                        // the non-lookup term is not a variable and thus requires further pattern matching
+                        // for example: L:List[Int(#"0")] = '#ostream(_)(I:Int), where L is the output buffer
+                        //           => '#ostream(_)(Int(#"1")) =? '#ostream(_)(I:Int)
 
-                    Term evalNonLookupOrChoice = nonLookupOrChoice.substituteAndEvaluate(crntSubst, context);
+                        Term evalNonLookupOrChoice = nonLookupOrChoice.substituteAndEvaluate(crntSubst, context);
 
-                    PatternMatcher lookupMatcher = new PatternMatcher(rule.isLemma(), true, context);
-                    if (lookupMatcher.patternMatch(evalLookupOrChoice, evalNonLookupOrChoice)) {
-                        if (nonLookupOrChoice.variableSet().containsAll(lookupMatcher.substitution().keySet())) {
-                            resolved = true;
-                            crntSubst = crntSubst.plusAll(lookupMatcher.substitution());
-                        } else if (RuleAuditing.isAuditBegun()) {
-                            System.err.println("Matching failure: substitution "
-                            + lookupMatcher.substitution() + " missing variables "
-                            + Sets.difference(lookupMatcher.substitution().keySet(), nonLookupOrChoice.variableSet()));
+                        PatternMatcher lookupMatcher = new PatternMatcher(rule.isLemma(), true, context);
+                        if (lookupMatcher.patternMatch(evalLookupOrChoice, evalNonLookupOrChoice)) {
+                            if (nonLookupOrChoice.variableSet().containsAll(lookupMatcher.substitution().keySet())) {
+                                resolved = true;
+                                crntSubst = crntSubst.plusAll(lookupMatcher.substitution());
+                            } else if (RuleAuditing.isAuditBegun()) {
+                                System.err.println("Matching failure: substitution "
+                                + lookupMatcher.substitution() + " missing variables "
+                                + Sets.difference(lookupMatcher.substitution().keySet(), nonLookupOrChoice.variableSet()));
+                            }
                         }
                     }
                 }
-            }
 
-            if (!resolved) {
-                crntSubst = null;
-                break;
+                if (!resolved) {
+                    crntSubst = null;
+                    break;
+                }
+                ++i;
             }
-            ++i;
-        }
-        Profiler.stopTimer(Profiler.EVALUATE_LOOKUP_CHOICE_TIMER);
 
-
-        /* evaluate side conditions */
-        Profiler.startTimer(Profiler.EVALUATE_REQUIRES_TIMER);
-        if (crntSubst != null) {
-            i = 0;
-            for (Term require : rule.requires()) {
-                // TODO(YilongL): in the future, we may have to accumulate
-                // the substitution obtained from evaluating the side
-                // condition
-                Term evaluatedReq = construct(rule.instructionsOfRequires().get(i), crntSubst, context);
-                if (!evaluatedReq.equals(BoolToken.TRUE)) {
-                    if (!evaluatedReq.isGround()
-                            && context.getTopConstraint() != null
-                            && context.getTopConstraint().implies(ConjunctiveFormula.of(context.global()).add(evaluatedReq, BoolToken.TRUE), Collections.emptySet())) {
-                        i++;
-                        continue;
-                    }
-                    if (RuleAuditing.isAuditBegun()) {
-                        System.err.println("Side condition failure: " + require.substituteWithBinders(crntSubst) + " evaluated to " + evaluatedReq);
+            /* evaluate side conditions */
+            if (crntSubst != null) {
+                i = 0;
+                for (Term require : rule.requires()) {
+                    // TODO(YilongL): in the future, we may have to accumulate
+                    // the substitution obtained from evaluating the side
+                    // condition
+                    Term evaluatedReq = compiled ?
+                            rule.compiledRequires().get(i).construct(crntSubst, context) :
+                            construct(rule.instructionsOfRequires().get(i), crntSubst, context);
+                    if (!evaluatedReq.equals(BoolToken.TRUE)) {
+                        if (!evaluatedReq.isGround()
+                                && context.getTopConstraint() != null
+                                && context.getTopConstraint().implies(ConjunctiveFormula.of(context.global()).add(evaluatedReq, BoolToken.TRUE), Collections.emptySet())) {
+                            i++;
+                            continue;
+                        }
+                        if (RuleAuditing.isAuditBegun()) {
+                            System.err.println("Side condition failure: " + require.substituteWithBinders(crntSubst) + " evaluated to " + evaluatedReq);
+                        }
+                        crntSubst = null;
+                        break;
                     }
-                    crntSubst = null;
-                    break;
+                    i++;
                 }
-                i++;
             }
+        } finally {
+            context.global().profiler.stop();
         }
-        Profiler.stopTimer(Profiler.EVALUATE_REQUIRES_TIMER);
 
         if (crntSubst != null) {
             ConjunctiveFormula substitutionAsFormula = ConjunctiveFormula.of(crntSubst, context.global())
@@ -187,6 +192,11 @@ public class RewriteEngineUtils {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Runs an instruction schedule generated by {@link org.kframework.backend.java.rewritemachine.GenerateRHSInstructions}
+     * on a stack machine, substituting the variables by their binding in {@code solution} and evaluating the
+     * functions and projections in the constructed term.
+     */
     public static Term construct(List<RHSInstruction> rhsInstructions, Map<Variable, Term> solution, TermContext context) {
         GlobalContext global = context.global();
 
@@ -207,7 +217,7 @@ public class RewriteEngineUtils {
             }
         }
 
-        Deque<Term> stack = new LinkedList<>();
+        Deque<Term> stack = new ArrayDeque<>();
         for (RHSInstruction instruction : rhsInstructions) {
             switch (instruction.type()) {
             case PUSH:
@@ -0,0 +1,114 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.backend.java.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Routes SMT queries to a fixed set of solver workers, so that independent queries issued by
+ * different threads are checked concurrently instead of queueing on a single monitor.
+ * <p>
+ * Idle workers are handed out most-recently-used first, which keeps the persistent session of a
+ * busy worker warm and leaves the sessions of the remaining workers uncreated until the load
+ * actually requires them.
+ *
+ * @see org.kframework.utils.options.SMTOptions#z3Workers
+ */
+class Z3Dispatcher {
+
+    /**
+     * A solver worker. At most one thread uses a worker at any time, so the session it owns
+     * needs no synchronization.
+     */
+    static final class Worker {
+        final int id;
+        /** The persistent session of this worker, created on first use. */
+        Z3Session session;
+
+        private final LongAdder queries = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        private Worker(int id) {
+            this.id = id;
+        }
+    }
+
+    private final List<Worker> workers;
+    private final BlockingDeque<Worker> idleWorkers = new LinkedBlockingDeque<>();
+
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+
+    Z3Dispatcher(int numberOfWorkers) {
+        List<Worker> workers = new ArrayList<>();
+        for (int i = 0; i < Math.max(1, numberOfWorkers); i++) {
+            Worker worker = new Worker(i);
+            workers.add(worker);
+            idleWorkers.addLast(worker);
+        }
+        this.workers = Collections.unmodifiableList(workers);
+    }
+
+    /**
+     * Returns an idle worker, blocking until one becomes available.
+     */
+    Worker acquire() {
+        Worker worker = idleWorkers.pollFirst();
+        if (worker != null) {
+            return worker;
+        }
+
+        int depth = queueDepth.incrementAndGet();
+        maxQueueDepth.accumulateAndGet(depth, Math::max);
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return idleWorkers.takeFirst();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            queueDepth.decrementAndGet();
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Returns the worker to the idle set, recording the time it spent on its last query.
+     */
+    void release(Worker worker, long elapsedNanos) {
+        worker.queries.increment();
+        worker.totalNanos.add(elapsedNanos);
+        worker.maxNanos.accumulateAndGet(elapsedNanos, Math::max);
+        idleWorkers.addFirst(worker);
+    }
+
+    void printStatistics() {
+        long total = workers.stream().mapToLong(w -> w.queries.sum()).sum();
+        System.err.printf("SMT queries: %d on %d workers (max queue depth %d)%n",
+                total, workers.size(), maxQueueDepth.get());
+        for (Worker worker : workers) {
+            long queries = worker.queries.sum();
+            if (queries == 0) {
+                continue;
+            }
+            long totalMillis = TimeUnit.NANOSECONDS.toMillis(worker.totalNanos.sum());
+            System.err.printf("  worker %d: %d queries, %d ms total, %.3f ms avg, %d ms max%n",
+                    worker.id, queries, totalMillis,
+                    worker.totalNanos.sum() / 1e6 / queries,
+                    TimeUnit.NANOSECONDS.toMillis(worker.maxNanos.get()));
+        }
+    }
+}
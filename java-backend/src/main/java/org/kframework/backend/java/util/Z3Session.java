@@ -0,0 +1,193 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.backend.java.util;
+
+import com.microsoft.z3.Context;
+import com.microsoft.z3.Params;
+import com.microsoft.z3.Solver;
+import com.microsoft.z3.Status;
+import com.microsoft.z3.Z3Exception;
+import org.kframework.utils.OS;
+import org.kframework.utils.file.FileUtil;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A long-lived Z3 solver session. The SMT prelude is loaded when the session is created and every query
+ * is checked inside its own push/pop scope, so that the declarations and assertions of one query do not
+ * leak into the next one.
+ * <p>
+ * A session is not thread-safe; it is owned by a single {@link Z3Dispatcher.Worker}.
+ */
+abstract class Z3Session {
+
+    /**
+     * Thrown when the solver does not answer within the timeout of the query plus {@link #DEADLINE_MARGIN}.
+     * The session has been killed and must be discarded.
+     */
+    static final class DeadlineExceeded extends IOException {
+        DeadlineExceeded(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * The time, in milliseconds, given to the solver on top of the timeout of a query to report that
+     * it timed out, before the session is considered hung.
+     */
+    static final int DEADLINE_MARGIN = 1000;
+
+    /**
+     * Checks the satisfiability of the given query.
+     *
+     * @return one of {@code "sat"}, {@code "unsat"}, {@code "unknown"}, or {@code null} if the session
+     * has died and must be discarded
+     */
+    abstract String check(String query, int timeout) throws Z3Exception, IOException;
+
+    /**
+     * Releases the native resources held by this session.
+     */
+    abstract void close();
+
+    /**
+     * Session backed by a single {@link Context} and {@link Solver} of the Z3 Java API.
+     * <p>
+     * The SMT-LIB parser of the Java API does not see the declarations already asserted in the solver,
+     * so the prelude text is still handed to the parser together with each query; what is saved is the
+     * creation and disposal of the native context and solver.
+     */
+    static final class Library extends Z3Session {
+
+        private final String prelude;
+        private final Context context;
+        private final Solver solver;
+
+        Library(String prelude) throws Z3Exception {
+            this.prelude = prelude;
+            this.context = new Context();
+            this.solver = context.mkSolver();
+        }
+
+        @Override
+        String check(String query, int timeout) throws Z3Exception {
+            Params params = context.mkParams();
+            params.add("timeout", timeout);
+            solver.setParameters(params);
+            solver.push();
+            try {
+                solver.add(context.parseSMTLIB2String(prelude + query, null, null, null, null));
+                Status status = solver.check();
+                return status == Status.UNSATISFIABLE ? "unsat" : status == Status.SATISFIABLE ? "sat" : "unknown";
+            } finally {
+                solver.pop();
+            }
+        }
+
+        @Override
+        void close() {
+            context.dispose();
+        }
+    }
+
+    /**
+     * Session backed by an external {@code z3 -in} process which reads the prelude once at startup.
+     * <p>
+     * The output of the process is read by a daemon thread, so that a query can wait for its answer with a
+     * deadline: a process which does not answer in time is killed rather than blocking its worker forever.
+     */
+    static final class ExternalProcess extends Z3Session {
+
+        /**
+         * Echoed after each {@code (check-sat)} so that error messages printed by Z3 for a malformed query
+         * cannot be mistaken for the answer of the next one.
+         */
+        private static final String END_OF_RESULT = "k-end-of-result";
+        /**
+         * Queued by the reader thread when the output of the process ends.
+         */
+        private static final String END_OF_OUTPUT = new String("k-end-of-output");
+
+        private final Process z3Process;
+        private final BufferedWriter input;
+        private final BlockingQueue<String> output = new LinkedBlockingQueue<>();
+
+        ExternalProcess(String prelude, FileUtil files) throws IOException {
+            ProcessBuilder pb = files.getProcessBuilder().command(
+                    OS.current().getNativeExecutable("z3"),
+                    "-in",
+                    "-smt2");
+            pb.redirectInput(ProcessBuilder.Redirect.PIPE);
+            pb.redirectOutput(ProcessBuilder.Redirect.PIPE);
+            z3Process = pb.start();
+            input = new BufferedWriter(new OutputStreamWriter(z3Process.getOutputStream()));
+            BufferedReader reader = new BufferedReader(new InputStreamReader(z3Process.getInputStream()));
+            Thread readerThread = new Thread(() -> {
+                try {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        output.add(line);
+                    }
+                } catch (IOException e) {
+                    // the process died or was killed
+                }
+                output.add(END_OF_OUTPUT);
+            }, "z3 output reader");
+            readerThread.setDaemon(true);
+            readerThread.start();
+            input.write(prelude);
+            input.write("\n");
+            input.flush();
+        }
+
+        @Override
+        String check(String query, int timeout) throws IOException {
+            input.write("(push)\n");
+            input.write("(set-option :timeout " + timeout + ")\n");
+            input.write(query);
+            input.write("(check-sat)\n");
+            input.write("(echo \"" + END_OF_RESULT + "\")\n");
+            input.write("(pop)\n");
+            input.flush();
+
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos((long) timeout + DEADLINE_MARGIN);
+            String result = "unknown";
+            while (true) {
+                String line;
+                try {
+                    line = output.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    close();
+                    throw new InterruptedIOException("interrupted while waiting for z3");
+                }
+                if (line == null) {
+                    close();
+                    throw new DeadlineExceeded("z3 did not answer within " + (timeout + DEADLINE_MARGIN) + "ms");
+                }
+                if (line == END_OF_OUTPUT) {
+                    return null;
+                }
+                line = line.trim();
+                if (line.equals(END_OF_RESULT)) {
+                    return result;
+                }
+                if (line.equals("sat") || line.equals("unsat") || line.equals("unknown")) {
+                    result = line;
+                }
+            }
+        }
+
+        @Override
+        void close() {
+            z3Process.destroyForcibly();
+        }
+    }
+}
@@ -34,6 +34,8 @@ public class Z3Wrapper {
     private final KExceptionManager kem;
     private final FileUtil files;
 
+    private final Z3Dispatcher dispatcher;
+
     public Z3Wrapper(
             SMTOptions options,
             KExceptionManager kem,
@@ -45,13 +47,78 @@ public class Z3Wrapper {
         this.files = files;
 
         SMT_PRELUDE = options.smtPrelude == null ? "" : files.loadFromWorkingDirectory(options.smtPrelude);
+        dispatcher = new Z3Dispatcher(options.z3Workers);
+    }
+
+    /**
+     * Checks the query on an idle worker of the dispatcher, blocking while all
+     * {@link SMTOptions#z3Workers} workers are busy.
+     */
+    public boolean isUnsat(String query, int timeout) {
+        Z3Dispatcher.Worker worker = dispatcher.acquire();
+        long start = System.nanoTime();
+        try {
+            if (options.z3Persistent) {
+                return checkQueryWithSession(worker, query, timeout);
+            } else if (options.z3Executable) {
+                return checkQueryWithExternalProcess(query, timeout);
+            } else {
+                return checkQueryWithLibrary(query, timeout);
+            }
+        } finally {
+            dispatcher.release(worker, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Prints the number of queries, the maximum queue depth and the latency of each worker.
+     */
+    public void printStatistics() {
+        dispatcher.printStatistics();
     }
 
-    public synchronized boolean isUnsat(String query, int timeout) {
+    /**
+     * Checks the query in the persistent session of the given worker. A session whose solver died
+     * is discarded and the query is retried in a fresh one. A session whose solver hung past the
+     * deadline of the query is killed, and the query is considered to have timed out.
+     */
+    private boolean checkQueryWithSession(Z3Dispatcher.Worker worker, String query, int timeout) {
+        String result = null;
+        for (int i = 0; i < Z3_RESTART_LIMIT && result == null; i++) {
+            boolean discard = false;
+            try {
+                if (worker.session == null) {
+                    worker.session = newSession();
+                }
+                result = worker.session.check(query, timeout);
+            } catch (Z3Exception e) {
+                kem.registerCriticalWarning(
+                        "failed to translate smtlib expression:\n" + SMT_PRELUDE + query);
+                result = "unknown";
+            } catch (Z3Session.DeadlineExceeded e) {
+                kem.registerInternalHiddenWarning("Restarting a hung z3 session: " + e.getMessage(), e);
+                result = "unknown";
+                discard = true;
+            } catch (IOException e) {
+                e.printStackTrace();
+            } catch (UnsatisfiedLinkError e) {
+                System.err.println(System.getProperty("java.library.path"));
+                throw e;
+            } finally {
+                if ((result == null || discard) && worker.session != null) {
+                    worker.session.close();
+                    worker.session = null;
+                }
+            }
+        }
+        return interpretResult(query, result);
+    }
+
+    private Z3Session newSession() throws Z3Exception, IOException {
         if (options.z3Executable) {
-            return checkQueryWithExternalProcess(query, timeout);
+            return new Z3Session.ExternalProcess(SMT_PRELUDE, files);
         } else {
-            return checkQueryWithLibrary(query, timeout);
+            return new Z3Session.Library(SMT_PRELUDE);
         }
     }
 
@@ -103,6 +170,10 @@ public class Z3Wrapper {
         } catch (IOException e) {
             e.printStackTrace();
         }
+        return interpretResult(query, result);
+    }
+
+    private boolean interpretResult(String query, String result) {
         if (result == null) {
             result = "unknown";
             if (globalOptions.debug) {
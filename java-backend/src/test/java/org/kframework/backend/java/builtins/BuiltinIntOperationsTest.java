@@ -0,0 +1,155 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.backend.java.builtins;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.kframework.backend.java.kil.TermContext;
+import org.mockito.Mock;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.function.BinaryOperator;
+
+public class BuiltinIntOperationsTest {
+
+    @Mock
+    TermContext context;
+
+    private static final long[] VALUES = {
+            Long.MIN_VALUE, Long.MIN_VALUE + 1, Long.MIN_VALUE / 2, Integer.MIN_VALUE - 1L, Integer.MIN_VALUE,
+            -1025, -1024, -2, -1, 0, 1, 2, 1024, 1025,
+            Integer.MAX_VALUE, Integer.MAX_VALUE + 1L, Long.MAX_VALUE / 2, Long.MAX_VALUE - 1, Long.MAX_VALUE};
+
+    private static final int[] DISTANCES = {0, 1, 2, 31, 32, 62, 63, 64, 65, 128};
+
+    private interface Operation {
+        IntToken apply(IntToken term1, IntToken term2, TermContext context);
+    }
+
+    /**
+     * Checks the given operation against the given {@link BigInteger} one on all pairs of boundary values, with the
+     * second value ranging over those for which the {@code BigInteger} operation is defined.
+     */
+    private void assertAgrees(Operation operation, BinaryOperator<BigInteger> expected, long[] values2) {
+        for (long value1 : VALUES) {
+            for (long value2 : values2) {
+                BigInteger result = expected.apply(BigInteger.valueOf(value1), BigInteger.valueOf(value2));
+                IntToken token = operation.apply(IntToken.of(value1), IntToken.of(value2), context);
+                assertEquals(value1 + ", " + value2, IntToken.of(result), token);
+                assertEquals(value1 + ", " + value2, result, token.bigIntegerValue());
+                assertEquals(value1 + ", " + value2, result.bitLength() < Long.SIZE, token.isLong());
+            }
+        }
+    }
+
+    private static long[] nonZero(long[] values) {
+        return Arrays.stream(values).filter(v -> v != 0).toArray();
+    }
+
+    private static long[] positive(long[] values) {
+        return Arrays.stream(values).filter(v -> v > 0).toArray();
+    }
+
+    private static long[] distances() {
+        return Arrays.stream(DISTANCES).asLongStream().toArray();
+    }
+
+    @Test
+    public void testAdd() {
+        assertAgrees(BuiltinIntOperations::add, BigInteger::add, VALUES);
+    }
+
+    @Test
+    public void testSub() {
+        assertAgrees(BuiltinIntOperations::sub, BigInteger::subtract, VALUES);
+    }
+
+    @Test
+    public void testMul() {
+        assertAgrees(BuiltinIntOperations::mul, BigInteger::multiply, VALUES);
+    }
+
+    @Test
+    public void testDiv() {
+        assertAgrees(BuiltinIntOperations::div, BigInteger::divide, nonZero(VALUES));
+        assertNull(BuiltinIntOperations.div(IntToken.of(Long.MIN_VALUE), IntToken.of(0), context));
+    }
+
+    @Test
+    public void testRem() {
+        assertAgrees(BuiltinIntOperations::rem, BigInteger::remainder, nonZero(VALUES));
+        assertNull(BuiltinIntOperations.rem(IntToken.of(Long.MIN_VALUE), IntToken.of(0), context));
+    }
+
+    @Test
+    public void testMod() {
+        assertAgrees(BuiltinIntOperations::mod, BigInteger::mod, positive(VALUES));
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void testModNegative() {
+        BuiltinIntOperations.mod(IntToken.of(Long.MIN_VALUE), IntToken.of(-1), context);
+    }
+
+    @Test
+    public void testShl() {
+        assertAgrees(BuiltinIntOperations::shl, (value, distance) -> value.shiftLeft(distance.intValue()), distances());
+    }
+
+    @Test
+    public void testShr() {
+        assertAgrees(BuiltinIntOperations::shr, (value, distance) -> value.shiftRight(distance.intValue()), distances());
+    }
+
+    @Test
+    public void testBigIntegerOperands() {
+        IntToken overMax = IntToken.of(BigInteger.valueOf(Long.MAX_VALUE).add(BigInteger.ONE));
+        IntToken underMin = IntToken.of(BigInteger.valueOf(Long.MIN_VALUE).subtract(BigInteger.ONE));
+        assertFalse(overMax.isLong());
+        assertFalse(underMin.isLong());
+        assertEquals(IntToken.of(Long.MAX_VALUE), BuiltinIntOperations.sub(overMax, IntToken.of(1), context));
+        assertEquals(IntToken.of(Long.MIN_VALUE), BuiltinIntOperations.add(underMin, IntToken.of(1), context));
+        assertTrue(BuiltinIntOperations.sub(overMax, IntToken.of(1), context).isLong());
+        assertEquals(IntToken.of(-1), BuiltinIntOperations.add(overMax, underMin, context));
+        assertEquals(IntToken.of(Long.MIN_VALUE), BuiltinIntOperations.div(overMax, IntToken.of(-1), context));
+    }
+
+    @Test
+    public void testInternedRange() {
+        for (long value = -1030; value <= 1030; value++) {
+            IntToken token = IntToken.of(value);
+            IntToken fromBigInteger = IntToken.of(BigInteger.valueOf(value));
+            IntToken fromString = IntToken.of(Long.toString(value));
+            assertEquals(token, fromBigInteger);
+            assertEquals(token, fromString);
+            assertEquals(token.hashCode(), fromBigInteger.hashCode());
+            if (-1024 <= value && value <= 1024) {
+                assertSame(token, fromBigInteger);
+                assertSame(token, fromString);
+            }
+        }
+        /* results computed on longs are interned as well */
+        assertSame(IntToken.of(1024), BuiltinIntOperations.add(IntToken.of(1023), IntToken.of(1), context));
+        assertSame(IntToken.of(-1024), BuiltinIntOperations.sub(IntToken.of(-1023), IntToken.of(1), context));
+        assertEquals(IntToken.of(1025), BuiltinIntOperations.add(IntToken.of(1024), IntToken.of(1), context));
+    }
+
+    @Test
+    public void testLongBoundaryTokens() {
+        for (long value : VALUES) {
+            IntToken token = IntToken.of(value);
+            IntToken fromBigInteger = IntToken.of(BigInteger.valueOf(value));
+            assertTrue(token.isLong());
+            assertTrue(fromBigInteger.isLong());
+            assertEquals(token, fromBigInteger);
+            assertEquals(token.hashCode(), fromBigInteger.hashCode());
+            assertEquals(value, fromBigInteger.longValue());
+            assertEquals(Long.toString(value), token.javaBackendValue());
+        }
+        IntToken overMax = IntToken.of(BigInteger.valueOf(Long.MAX_VALUE).add(BigInteger.ONE));
+        assertNotEquals(IntToken.of(Long.MAX_VALUE), overMax);
+        assertEquals(overMax, IntToken.of("9223372036854775808"));
+        assertEquals(overMax.hashCode(), IntToken.of("9223372036854775808").hashCode());
+    }
+}
@@ -54,4 +54,41 @@ public class BuiltinListTest {
 
         Assert.assertEquals(builtinList.children, ImmutableList.of(new Variable("L", Sort.LIST), IntToken.of(9), IntToken.of(9)));
     }
+
+    @Test
+    public void testRangeOfChildren() throws Exception {
+        ImmutableList.Builder<Term> elements = ImmutableList.builder();
+        for (int i = 0; i < 8; i++) {
+            elements.add(IntToken.of(i));
+        }
+        ImmutableList<Term> children = elements.build();
+        BuiltinList builtinList = (BuiltinList) BuiltinList.builder(Sort.LIST, null, null, globalContext)
+                .addAll(children)
+                .build();
+
+        for (int begin = 0; begin <= children.size(); begin++) {
+            for (int end = begin; end <= children.size(); end++) {
+                Term range = builtinList.range(begin, end);
+                if (end - begin == 1) {
+                    Assert.assertEquals(children.get(begin), range);
+                } else {
+                    Assert.assertEquals(children.subList(begin, end), ((BuiltinList) range).children);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testWith() throws Exception {
+        BuiltinList builtinList = (BuiltinList) BuiltinList.builder(Sort.LIST, null, null, globalContext)
+                .addAll(IntToken.of(0), IntToken.of(1), IntToken.of(2))
+                .build();
+
+        Assert.assertEquals(
+                ImmutableList.of(IntToken.of(0), IntToken.of(3), IntToken.of(2)),
+                ((BuiltinList) builtinList.with(1, IntToken.of(3))).children);
+        Assert.assertEquals(
+                ImmutableList.of(IntToken.of(0), IntToken.of(1), IntToken.of(2)),
+                builtinList.children);
+    }
 }
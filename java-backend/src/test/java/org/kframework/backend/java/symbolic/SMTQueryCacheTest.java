@@ -0,0 +1,200 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.backend.java.symbolic;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.kframework.main.GlobalOptions;
+import org.kframework.utils.errorsystem.KExceptionManager;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.*;
+
+public class SMTQueryCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final KExceptionManager kem = new KExceptionManager(new GlobalOptions());
+
+    private static void assertSameKey(String query1, String query2) {
+        assertEquals(SMTQueryCache.normalize(query1), SMTQueryCache.normalize(query2));
+    }
+
+    private static void assertDifferentKeys(String query1, String query2) {
+        assertNotEquals(SMTQueryCache.normalize(query1), SMTQueryCache.normalize(query2));
+    }
+
+    @Test
+    public void testAlphaEquivalentQueries() {
+        assertSameKey(
+                "(declare-fun x () Int)(declare-fun y () Int)(assert (> x y))",
+                "(declare-fun _7 () Int)(declare-fun _3 () Int)(assert (> _7 _3))");
+        assertSameKey(
+                "(declare-fun x () Int)(declare-fun y () Int)(assert (> x y))",
+                "(declare-fun b () Int)(declare-fun a () Int)(assert (> a b))");
+        assertSameKey(
+                "(declare-fun x () Int) ; a comment\n(assert (> x 0))",
+                "(declare-fun y () Int)\n  (assert\t(> y 0))");
+    }
+
+    @Test
+    public void testNonEquivalentQueries() {
+        assertDifferentKeys(
+                "(declare-fun x () Int)(declare-fun y () Bool)(assert (= y (> x 0)))",
+                "(declare-fun x () Int)(declare-fun y () Bool)(assert (= y (> 0 x)))");
+        assertDifferentKeys(
+                "(declare-fun x () Int)(declare-fun y () Int)(assert (> x y))",
+                "(declare-fun x () Int)(declare-fun y () Int)(assert (> x x))");
+        assertDifferentKeys(
+                "(declare-fun x () Int)(assert (> x 0))",
+                "(declare-fun x () Real)(assert (> x 0))");
+    }
+
+    @Test
+    public void testFunctionAndSortNames() {
+        assertDifferentKeys(
+                "(declare-fun f (Int) Int)(declare-fun x () Int)(assert (> (f x) 0))",
+                "(declare-fun g (Int) Int)(declare-fun x () Int)(assert (> (g x) 0))");
+        assertDifferentKeys(
+                "(declare-sort S 0)(declare-fun x () S)(declare-fun y () S)(assert (= x y))",
+                "(declare-sort T 0)(declare-fun x () T)(declare-fun y () T)(assert (= x y))");
+        assertSameKey(
+                "(declare-fun f (Int) Int)(declare-fun x () Int)(assert (> (f x) 0))",
+                "(declare-fun f (Int) Int)(declare-fun y () Int)(assert (> (f y) 0))");
+    }
+
+    @Test
+    public void testQuantifierBinders() {
+        assertSameKey(
+                "(assert (forall ((x Int)) (> x 0)))",
+                "(assert (forall ((y Int)) (> y 0)))");
+        assertSameKey(
+                "(declare-fun a () Int)(assert (exists ((x Int) (y Int)) (> x (+ y a))))",
+                "(declare-fun c () Int)(assert (exists ((v Int) (w Int)) (> v (+ w c))))");
+        assertDifferentKeys(
+                "(assert (forall ((x Int)) (> x 0)))",
+                "(assert (exists ((x Int)) (> x 0)))");
+        assertDifferentKeys(
+                "(declare-fun a () Int)(assert (forall ((x Int)) (> x a)))",
+                "(declare-fun a () Int)(assert (forall ((x Int)) (> a x)))");
+        assertDifferentKeys(
+                "(assert (forall ((x Int) (y Int)) (> x y)))",
+                "(assert (forall ((x Int) (y Int)) (> y x)))");
+    }
+
+    @Test
+    public void testQuotedSymbols() {
+        assertSameKey(
+                "(declare-fun |a b| () Int)(assert (> |a b| 0))",
+                "(declare-fun |c (d| () Int)(assert (> |c (d| 0))");
+        assertSameKey(
+                "(declare-fun |x| () Int)(assert (> x 0))",
+                "(declare-fun y () Int)(assert (> |y| 0))");
+        assertDifferentKeys(
+                "(declare-fun |a b| () Int)(declare-fun c () Bool)(assert (= c (> |a b| 0)))",
+                "(declare-fun |a b| () Int)(declare-fun c () Bool)(assert (= c (> 0 |a b|)))");
+        assertDifferentKeys(
+                "(declare-fun f (Int) Int)(declare-fun x () Int)(assert (> (|f| x) 0))",
+                "(declare-fun g (Int) Int)(declare-fun x () Int)(assert (> (|g| x) 0))");
+    }
+
+    @Test
+    public void testStringLiterals() {
+        assertSameKey(
+                "(declare-fun s () String)(assert (= s \"x y\"))",
+                "(declare-fun t () String)(assert (= t \"x y\"))");
+        assertSameKey(
+                "(declare-fun x () String)(assert (= x \"x\"))",
+                "(declare-fun y () String)(assert (= y \"x\"))");
+        assertDifferentKeys(
+                "(declare-fun x () String)(assert (= x \"x\"))",
+                "(declare-fun y () String)(assert (= y \"y\"))");
+        assertDifferentKeys(
+                "(declare-fun s () String)(assert (= s \"x y\"))",
+                "(declare-fun s () String)(assert (= s \"x  y\"))");
+        assertSameKey(
+                "(declare-fun s () String)(assert (= s \"a) ; \"\"(b\"))",
+                "(declare-fun t () String)(assert (= t \"a) ; \"\"(b\"))");
+        assertDifferentKeys(
+                "(declare-fun s () String)(assert (= s \"a) ; \"\"(b\"))",
+                "(declare-fun s () String)(assert (= s \"a) ; \"\"(c\"))");
+    }
+
+    @Test
+    public void testSpillFile() throws IOException {
+        File file = new File(folder.getRoot(), "smt-cache.bin");
+        SMTQueryCache cache = new SMTQueryCache(10, "prelude", file, kem);
+        cache.put("a", true, kem);
+        cache.put("b", false, kem);
+        cache.flush(kem);
+
+        cache = new SMTQueryCache(10, "prelude", file, kem);
+        assertEquals(true, cache.get("a"));
+        assertEquals(false, cache.get("b"));
+        assertNull(new SMTQueryCache(10, "other prelude", file, kem).get("a"));
+        assertTrue(kem.getExceptions().isEmpty());
+    }
+
+    @Test
+    public void testTruncatedSpillFile() throws IOException {
+        File file = new File(folder.getRoot(), "smt-cache.bin");
+        SMTQueryCache cache = new SMTQueryCache(10, "prelude", file, kem);
+        cache.put("a", true, kem);
+        cache.put("b", false, kem);
+        cache.flush(kem);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            // an entry interrupted after its key, with neither the last byte of the key nor the verdict
+            raf.seek(raf.length());
+            raf.writeInt(3);
+            raf.writeBytes("ab");
+        }
+
+        cache = new SMTQueryCache(10, "prelude", file, kem);
+        assertEquals(true, cache.get("a"));
+        assertEquals(false, cache.get("b"));
+        cache.put("c", true, kem);
+        cache.flush(kem);
+
+        cache = new SMTQueryCache(10, "prelude", file, kem);
+        assertEquals(true, cache.get("a"));
+        assertEquals(false, cache.get("b"));
+        assertEquals(true, cache.get("c"));
+        assertTrue(kem.getExceptions().isEmpty());
+    }
+
+    @Test
+    public void testCorruptSpillFile() throws IOException {
+        File file = new File(folder.getRoot(), "smt-cache.bin");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[] {(byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xf0, 1, 2, 3});
+        }
+        SMTQueryCache cache = new SMTQueryCache(10, "prelude", file, kem);
+        assertEquals(1, kem.getExceptions().size());
+        cache.put("a", true, kem);
+        cache.flush(kem);
+        assertEquals(true, new SMTQueryCache(10, "prelude", file, kem).get("a"));
+    }
+
+    @Test
+    public void testSpillFileCompaction() throws IOException {
+        File file = new File(folder.getRoot(), "smt-cache.bin");
+        for (int run = 0; run < 10; run++) {
+            SMTQueryCache cache = new SMTQueryCache(2, "prelude", file, kem);
+            cache.put("a" + run, true, kem);
+            cache.put("b" + run, false, kem);
+            cache.flush(kem);
+        }
+        long length = file.length();
+        SMTQueryCache cache = new SMTQueryCache(2, "prelude", file, kem);
+        assertEquals(true, cache.get("a9"));
+        assertEquals(false, cache.get("b9"));
+        assertNull(cache.get("a8"));
+        cache.flush(kem);
+        assertEquals(length, file.length());
+    }
+}
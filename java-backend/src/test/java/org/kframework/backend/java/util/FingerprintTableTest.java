@@ -0,0 +1,90 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.backend.java.util;
+
+import org.junit.Test;
+import org.kframework.utils.errorsystem.KEMException;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+public class FingerprintTableTest {
+
+    private static void assertGrows(FingerprintTable.Storage storage) {
+        try (FingerprintTable table = new FingerprintTable(storage)) {
+            for (long i = 0; i < 100000; i++) {
+                assertTrue(table.add(i * 0x9e3779b97f4a7c15L, i));
+            }
+            assertEquals(100000, table.size());
+            for (long i = 0; i < 100000; i++) {
+                assertFalse(table.add(i * 0x9e3779b97f4a7c15L, i));
+            }
+            assertEquals(100000, table.size());
+        }
+    }
+
+    @Test
+    public void testHeap() {
+        assertGrows(FingerprintTable.Storage.HEAP);
+    }
+
+    @Test
+    public void testOffHeap() {
+        assertGrows(FingerprintTable.Storage.OFF_HEAP);
+    }
+
+    @Test
+    public void testMapped() {
+        assertGrows(FingerprintTable.Storage.MAPPED);
+    }
+
+    @Test
+    public void testDepth() {
+        FingerprintTable table = new FingerprintTable(FingerprintTable.Storage.HEAP);
+        assertTrue(table.add(1, 2, 5));
+        assertFalse(table.add(1, 2, 5));
+        assertFalse(table.add(1, 2, 7));
+        assertTrue(table.add(1, 2, 3));
+        assertFalse(table.add(1, 2, 4));
+        assertEquals(1, table.size());
+    }
+
+    @Test
+    public void testZeroFingerprint() {
+        FingerprintTable table = new FingerprintTable(FingerprintTable.Storage.HEAP);
+        assertTrue(table.add(0, 0));
+        assertFalse(table.add(0, 1));
+    }
+
+    @Test
+    public void testCloseDeletesMappedFile() {
+        FingerprintTable table = new FingerprintTable(FingerprintTable.Storage.MAPPED);
+        for (long i = 0; i < 100000; i++) {
+            table.add(i, i);
+        }
+        File file = table.mappedFile();
+        assertTrue(file.exists());
+        table.close();
+        assertFalse(file.exists());
+        assertNull(table.mappedFile());
+        table.close();
+    }
+
+    @Test
+    public void testCloseHeap() {
+        FingerprintTable table = new FingerprintTable(FingerprintTable.Storage.HEAP);
+        table.add(1, 2);
+        assertNull(table.mappedFile());
+        table.close();
+        assertEquals(1, table.size());
+    }
+
+    @Test(expected = KEMException.class)
+    public void testMaxCapacity() {
+        try (FingerprintTable table = new FingerprintTable(FingerprintTable.Storage.MAPPED, 1 << 13)) {
+            for (long i = 0; i < 1 << 13; i++) {
+                table.add(i, i);
+            }
+        }
+    }
+}
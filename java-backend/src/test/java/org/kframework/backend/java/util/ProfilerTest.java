@@ -0,0 +1,59 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.backend.java.util;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.kframework.krun.KRunOptions;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ProfilerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final int DEPTH = 100000;
+
+    /**
+     * Profiles two mutually recursive functions f and g, nested {@link #DEPTH} times.
+     */
+    private static Profiler profileRecursion() {
+        Profiler profiler = new Profiler(true);
+        for (int i = 0; i < DEPTH; i++) {
+            profiler.start(Profiler.Category.FUNCTION, i % 2 == 0 ? "f" : "g");
+        }
+        for (int i = 0; i < DEPTH; i++) {
+            profiler.stop();
+        }
+        return profiler;
+    }
+
+    private List<String> write(Profiler profiler, KRunOptions.ProfileFormat format) throws IOException {
+        KRunOptions options = new KRunOptions();
+        options.experimental.profileFile = folder.newFile();
+        options.experimental.profileFormat = format;
+        profiler.write(options);
+        return Files.readAllLines(options.experimental.profileFile.toPath(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testFoldedRecursion() throws IOException {
+        for (String line : write(profileRecursion(), KRunOptions.ProfileFormat.FOLDED)) {
+            String path = line.substring(0, line.lastIndexOf(' '));
+            assertTrue(path, path.equals("function f") || path.equals("function f;function g"));
+        }
+    }
+
+    @Test
+    public void testJsonRecursion() throws IOException {
+        String json = String.join("\n", write(profileRecursion(), KRunOptions.ProfileFormat.JSON));
+        assertTrue(json, json.contains("\"name\": \"f\", \"count\": " + DEPTH / 2 + ","));
+        assertTrue(json, json.contains("\"name\": \"g\", \"count\": " + DEPTH / 2 + ","));
+    }
+}
@@ -0,0 +1,44 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+
+package org.kframework.definition;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.kframework.utils.KoreUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+
+import static org.junit.Assert.*;
+import static org.kframework.Collections.*;
+
+public class BinaryDefinitionTest extends org.kframework.AbstractTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRoundTrip() throws IOException, URISyntaxException {
+        KoreUtils utils = new KoreUtils("/convertor-tests/kore_imp.k", "IMP", "IMP-SYNTAX", kem);
+        assertRoundTrip(utils.compiledDef.kompiledDefinition);
+        assertRoundTrip(utils.compiledDef.getParsedDefinition());
+    }
+
+    private void assertRoundTrip(Definition definition) throws IOException {
+        File file = folder.newFile();
+        BinaryDefinition.write(definition, file);
+        Definition read = BinaryDefinition.read(file);
+
+        assertEquals(definition, read);
+        assertEquals(definition.att(), read.att());
+        assertEquals(definition.mainModule().name(), read.mainModule().name());
+        for (Module module : iterable(definition.modules())) {
+            Module readModule = read.getModule(module.name()).get();
+            assertEquals(module.name(), module, readModule);
+            assertEquals(module.name(), module.att(), readModule.att());
+            assertEquals(module.name(), module.localSentences(), readModule.localSentences());
+        }
+    }
+}
@@ -0,0 +1,64 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+
+package org.kframework.frontend.compile;
+
+import org.junit.Test;
+import org.kframework.attributes.Source;
+import org.kframework.builtin.BooleanUtils;
+import org.kframework.builtin.KLabels;
+import org.kframework.definition.Module;
+import org.kframework.definition.Rule;
+import org.kframework.frontend.Assoc;
+import org.kframework.frontend.K;
+import org.kframework.frontend.KORE;
+import org.kframework.krun.KRunOptions;
+import org.kframework.parser.ProductionReference;
+import org.kframework.rewriter.SearchType;
+import org.kframework.unparser.AddBrackets;
+import org.kframework.unparser.KOREToTreeNodes;
+import org.kframework.utils.KoreUtils;
+
+import java.net.URISyntaxException;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+public class SearchStrategyTest extends org.kframework.AbstractTest {
+
+    @Test
+    public void depthLimitedSearch() throws URISyntaxException {
+        KoreUtils utils = new KoreUtils("/compiler-tests/search-depth.k", "SEARCH-DEPTH", "SEARCH-DEPTH", true, KORE.Sort("S"), false, false, kem);
+
+        Set<String> breadthFirst = search(utils, KRunOptions.SearchStrategy.BFS, 5);
+        assertTrue(breadthFirst.contains("<k> x3 </k>"));
+        assertTrue(breadthFirst.contains("<k> y3 </k>"));
+        assertEquals(breadthFirst, search(utils, KRunOptions.SearchStrategy.DFS, 5));
+        assertEquals(breadthFirst, search(utils, KRunOptions.SearchStrategy.ITERATIVE_DEEPENING, 5));
+
+        Set<String> shallowBreadthFirst = search(utils, KRunOptions.SearchStrategy.BFS, 3);
+        assertFalse(shallowBreadthFirst.contains("<k> x2 </k>"));
+        assertEquals(shallowBreadthFirst, search(utils, KRunOptions.SearchStrategy.DFS, 3));
+        assertEquals(shallowBreadthFirst, search(utils, KRunOptions.SearchStrategy.ITERATIVE_DEEPENING, 3));
+    }
+
+    /**
+     * Returns the states reachable from {@code a} within the given depth, found with the given strategy.
+     */
+    private Set<String> search(KoreUtils utils, KRunOptions.SearchStrategy strategy, int depth) throws URISyntaxException {
+        utils.krunOptions.searchStrategy = strategy;
+        K kPgm = utils.getParsed("a", Source.apply("generated by " + getClass().getSimpleName()));
+        K res = utils.getRewriter().search(kPgm, Optional.of(depth), Optional.empty(),
+                new Rule(KORE.KVariable("X"), BooleanUtils.TRUE, BooleanUtils.TRUE, KORE.Att()),
+                SearchType.STAR, false);
+
+        Module unparsingModule = utils.getUnparsingModule();
+        Set<String> results = new TreeSet<>();
+        for (K result : Assoc.flatten(KORE.KLabel(KLabels.ML_OR), Collections.singletonList(res), KORE.KLabel(KLabels.ML_FALSE))) {
+            results.add(KOREToTreeNodes.toString(new AddBrackets(unparsingModule).addBrackets((ProductionReference) KOREToTreeNodes.apply(KOREToTreeNodes.up(unparsingModule, result), unparsingModule))).trim());
+        }
+        return results;
+    }
+}
@@ -56,6 +56,19 @@ public class StrategiesTest {
         assertSearch(filename, mainModule, syntaxModule, pgm, expected, "if ^xy ; ^xy then ^xy else ^xz ; ^zzz ; ^zzz");
     }
 
+    @Test
+    public void unindexedHead() throws IOException, URISyntaxException {
+        String filename = "/compiler-tests/strategies.k";
+        String mainModule = "A";
+        String syntaxModule = "A";
+
+        // no rule rewrites y, so the configuration is stuck and the strategy fails
+        String pgm = "y";
+        String expected = "<t> <k> y </k> <s> false </s> </t>";
+
+        assertSearch(filename, mainModule, syntaxModule, pgm, expected, "^xy");
+    }
+
     @Test
     public void imp() throws IOException, URISyntaxException {
         String filename = "/compiler-tests/strategies_imp.k";
@@ -0,0 +1,51 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+
+package org.kframework.kompile;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.kframework.utils.file.FileUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class KompileFingerprintTest extends org.kframework.AbstractTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private String fingerprint(File definitionFile, KompileOptions kompileOptions) {
+        return new Kompile(kompileOptions, FileUtil.testFileUtil(), kem, false).fingerprint(definitionFile);
+    }
+
+    @Test
+    public void testFingerprint() throws IOException, URISyntaxException {
+        File definitionFile = new File(folder.getRoot(), "search-depth.k");
+        File requiredFile = new File(folder.getRoot(), "required.k");
+        String definition = FileUtils.readFileToString(
+                new File(KompileFingerprintTest.class.getResource("/compiler-tests/search-depth.k").toURI()), StandardCharsets.UTF_8);
+        FileUtils.write(definitionFile, "require \"required.k\"\n" + definition, StandardCharsets.UTF_8);
+        FileUtils.write(requiredFile, "module REQUIRED\nendmodule\n", StandardCharsets.UTF_8);
+
+        String fingerprint = fingerprint(definitionFile, new KompileOptions());
+        assertEquals(fingerprint, fingerprint(definitionFile, new KompileOptions()));
+
+        KompileOptions otherOptions = new KompileOptions();
+        otherOptions.transition = Collections.singletonList("other");
+        assertNotEquals(fingerprint, fingerprint(definitionFile, otherOptions));
+
+        FileUtils.write(requiredFile, "module REQUIRED\n  syntax R ::= \"r\"\nendmodule\n", StandardCharsets.UTF_8);
+        String requiredChanged = fingerprint(definitionFile, new KompileOptions());
+        assertNotEquals(fingerprint, requiredChanged);
+
+        FileUtils.write(definitionFile, "// a comment\n", StandardCharsets.UTF_8, true);
+        assertNotEquals(requiredChanged, fingerprint(definitionFile, new KompileOptions()));
+    }
+}
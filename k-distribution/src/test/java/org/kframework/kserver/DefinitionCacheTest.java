@@ -0,0 +1,115 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.kserver;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.kframework.HookProvider;
+import org.kframework.attributes.Source;
+import org.kframework.backend.java.kil.GlobalContext;
+import org.kframework.backend.java.symbolic.InitializeRewriter;
+import org.kframework.backend.java.symbolic.JavaExecutionOptions;
+import org.kframework.builtin.BooleanUtils;
+import org.kframework.builtin.KLabels;
+import org.kframework.frontend.Assoc;
+import org.kframework.frontend.K;
+import org.kframework.frontend.KORE;
+import org.kframework.kompile.KompileOptions;
+import org.kframework.krun.KRunOptions;
+import org.kframework.krun.ioserver.filesystem.portable.PortableFileSystem;
+import org.kframework.main.GlobalOptions;
+import org.kframework.rewriter.SearchType;
+import org.kframework.utils.KoreUtils;
+import org.kframework.utils.errorsystem.KExceptionManager;
+import org.kframework.utils.file.FileUtil;
+
+import java.io.File;
+import java.net.URISyntaxException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class DefinitionCacheTest extends org.kframework.AbstractTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Runs two calls with different options and exception managers against one cached definition, as the K server
+     * does, and checks that the second call reuses the backend definition of the first one with its own options.
+     */
+    @Test
+    public void reusedDefinitionTakesOptionsOfEachCall() throws URISyntaxException {
+        KoreUtils utils = new KoreUtils("/compiler-tests/search-depth.k", "SEARCH-DEPTH", "SEARCH-DEPTH", true, KORE.Sort("S"), false, false, kem);
+        DefinitionCache cache = new DefinitionCache(1);
+        File kompiledDir = folder.getRoot();
+
+        KRunOptions firstOptions = new KRunOptions();
+        firstOptions.search = true;
+        firstOptions.searchStrategy = KRunOptions.SearchStrategy.BFS;
+        KExceptionManager firstKem = new KExceptionManager(new GlobalOptions());
+        Call first = krun(cache, kompiledDir, utils, firstOptions, firstKem);
+
+        KRunOptions secondOptions = new KRunOptions();
+        secondOptions.search = true;
+        secondOptions.searchStrategy = KRunOptions.SearchStrategy.DFS;
+        secondOptions.experimental.hashCons = true;
+        KExceptionManager secondKem = new KExceptionManager(new GlobalOptions());
+        Call second = krun(cache, kompiledDir, utils, secondOptions, secondKem);
+
+        assertSame(first.entry, second.entry);
+        assertSame(first.glue.definition, second.glue.definition);
+        assertEquals(first.results, second.results);
+        assertFalse(second.results.isEmpty());
+
+        assertFalse(second.glue.definition.rules().isEmpty());
+        for (org.kframework.backend.java.kil.Rule rule : second.glue.definition.rules()) {
+            GlobalContext global = rule.globalContext();
+            assertSame(secondKem, global.kem);
+            assertSame(secondOptions, global.krunOptions);
+            assertNotNull(global.kItemInterner);
+        }
+        assertSame(secondKem, second.glue.rewritingContext.kem);
+        assertSame(secondOptions, second.glue.rewritingContext.krunOptions);
+    }
+
+    private static class Call {
+        final DefinitionCache.Entry entry;
+        final InitializeRewriter.SymbolicRewriterGlue glue;
+        final Set<K> results;
+
+        Call(DefinitionCache.Entry entry, InitializeRewriter.SymbolicRewriterGlue glue, Set<K> results) {
+            this.entry = entry;
+            this.glue = glue;
+            this.results = results;
+        }
+    }
+
+    /**
+     * Searches the states reachable from {@code a} within three steps, with the definition acquired from the given
+     * cache and initialized as krun does.
+     */
+    private Call krun(DefinitionCache cache, File kompiledDir, KoreUtils utils, KRunOptions krunOptions, KExceptionManager kem) throws URISyntaxException {
+        DefinitionCache.Entry entry = cache.acquire(kompiledDir, () -> new DefinitionCache.Entry(null, utils.compiledDef, null));
+        try {
+            FileUtil files = FileUtil.testFileUtil();
+            InitializeRewriter initializeRewriter = new InitializeRewriter(new PortableFileSystem(kem, files),
+                    new JavaExecutionOptions().deterministicFunctions, krunOptions.global, kem, krunOptions.experimental.smt,
+                    HookProvider.get(kem), new KompileOptions().transition, krunOptions, files, entry.initializeDefinition);
+            InitializeRewriter.SymbolicRewriterGlue glue = (InitializeRewriter.SymbolicRewriterGlue)
+                    initializeRewriter.apply(Pair.of(utils.compiledDef.executionModule(), null));
+            K kPgm = utils.getParsed("a", Source.apply("generated by " + getClass().getSimpleName()));
+            K res = glue.search(kPgm, Optional.of(3), Optional.empty(),
+                    new org.kframework.definition.Rule(KORE.KVariable("X"), BooleanUtils.TRUE, BooleanUtils.TRUE, KORE.Att()),
+                    SearchType.STAR, false);
+            Set<K> results = new HashSet<>(Assoc.flatten(KORE.KLabel(KLabels.ML_OR), Collections.singletonList(res), KORE.KLabel(KLabels.ML_FALSE)));
+            return new Call(entry, glue, results);
+        } finally {
+            entry.release();
+        }
+    }
+}
@@ -46,6 +46,7 @@ import static org.kframework.frontend.KORE.KToken;
 public class KoreUtils {
 
     public final CompiledDefinition compiledDef;
+    public final KRunOptions krunOptions;
     public final KExceptionManager kem;
     public final BiFunction<String, Source, K> programParser;
     public InitializeRewriter initializeRewriter;
@@ -70,7 +71,7 @@ public class KoreUtils {
         kompileOptions.experimental.heatCoolStrategies = heatCoolStrategies;
         kompileOptions.outerParsing.noPrelude = noPrelude;
 
-        KRunOptions krunOptions = new KRunOptions();
+        krunOptions = new KRunOptions();
         krunOptions.search = search;
 
         JavaExecutionOptions javaExecutionOptions = new JavaExecutionOptions();
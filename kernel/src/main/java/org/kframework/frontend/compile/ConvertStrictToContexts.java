@@ -120,6 +120,11 @@ public class ConvertStrictToContexts extends BasicModuleTransformer {
         return contexts;
     }
 
+    @Override
+    public boolean parallelModules() {
+        return true;
+    }
+
     public Module process(Module input, scala.collection.Set<Module> processedImports) {
         Set<Sentence> contextsToAdd = resolve(stream(input.localSentences())
                 .filter(s -> s instanceof Production)
@@ -55,6 +55,11 @@ public class ResolveHeatCoolAttribute extends SentenceBasedModuleTransformer {
         throw new AssertionError("unreachable");
     }
 
+    @Override
+    public boolean parallelModules() {
+        return true;
+    }
+
     public Sentence process(Sentence s) {
         if (!s.att().contains("heat") && !s.att().contains("cool")) {
             return s;
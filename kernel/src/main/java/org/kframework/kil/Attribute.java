@@ -54,6 +54,7 @@ public class Attribute<T> extends ASTNode {
     public static final String EQUALITY_KEY = "equality";
     public static final String ARITY_KEY = "arity";
     public static final String IMPURE_KEY = "impure";
+    public static final String MEMO_KEY = "memo";
     public static final String STRICT_KEY = "strict";
     public static final String SEQSTRICT_KEY = "seqstrict";
 
@@ -2,7 +2,6 @@
 package org.kframework.kompile;
 
 import com.google.common.collect.Lists;
-import com.google.common.collect.Sets;
 import org.apache.commons.collections15.ListUtils;
 import org.kframework.Collections;
 import org.kframework.attributes.Source;
@@ -44,6 +43,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -107,12 +107,12 @@ public class DefinitionParsing {
 
         Module module = modules.iterator().next();
 
-        errors = java.util.Collections.synchronizedSet(Sets.newHashSet());
-        caches = new HashMap<>();
+        errors = ConcurrentHashMap.newKeySet();
+        caches = new ConcurrentHashMap<>();
 
         if (cacheParses) {
             try {
-                caches = loader.load(Map.class, cacheFile);
+                caches = new ConcurrentHashMap<String, ParseCache>(loader.load(Map.class, cacheFile));
             } catch (FileNotFoundException e) {
             } catch (IOException | ClassNotFoundException e) {
                 kem.registerInternalHiddenWarning("Invalidating serialized cache due to corruption.", e);
@@ -195,12 +195,12 @@ public class DefinitionParsing {
             definitionWithConfigBubble = definition;
         }
 
-        errors = java.util.Collections.synchronizedSet(Sets.newHashSet());
-        caches = new HashMap<>();
+        errors = ConcurrentHashMap.newKeySet();
+        caches = new ConcurrentHashMap<>();
 
         if (cacheParses) {
             try {
-                caches = loader.load(Map.class, cacheFile);
+                caches = new ConcurrentHashMap<String, ParseCache>(loader.load(Map.class, cacheFile));
             } catch (FileNotFoundException e) {
             } catch (IOException | ClassNotFoundException e) {
                 kem.registerInternalHiddenWarning("Invalidating serialized cache due to corruption.", e);
@@ -214,6 +214,7 @@ public class DefinitionParsing {
     }
 
     Map<String, ParseCache> caches;
+    private Map<String, Long> moduleParsingMillis = new HashMap<>();
     private java.util.Set<KEMException> errors;
     Definition definitionWithConfigBubble;
 
@@ -221,15 +222,28 @@ public class DefinitionParsing {
         return errors;
     }
 
+    /**
+     * Returns the time in milliseconds spent parsing the rules and contexts of each module.
+     */
+    public Map<String, Long> moduleParsingMillis() {
+        return moduleParsingMillis;
+    }
+
     public Definition resolveNonConfigBubbles(Definition defWithConfig) {
         HybridMemoizingModuleTransformer resolveNonConfigBubbles = new HybridMemoizingModuleTransformer() {
             @Override
             public Module processHybridModule(Module hybridModule) {
                 return resolveNonConfigBubbles(hybridModule, s -> apply(defWithConfig.getModule(s).get()), isStrict);
             }
+
+            @Override
+            public boolean parallelModules() {
+                return true;
+            }
         };
 
         Definition parsedDef = new DefinitionTransformer(resolveNonConfigBubbles).apply(defWithConfig);
+        moduleParsingMillis = mutable(resolveNonConfigBubbles.moduleMillis());
         return parsedDef;
     }
 
@@ -245,11 +259,11 @@ public class DefinitionParsing {
         ParseInModule parser = RuleGrammarGenerator.getCombinedGrammar(cache.getModule(), isStrict);
 
         java.util.Set<Bubble> bubbles = stream(module.localSentences())
-                .parallel()
                 .filter(s -> s instanceof Bubble)
                 .map(b -> (Bubble) b).collect(Collectors.toSet());
 
-        Set<Sentence> ruleSet = bubbles.stream()
+        // the bubbles are parsed in the common fork-join pool, sharing the parse cache and the error set
+        Set<Sentence> ruleSet = bubbles.parallelStream()
                 .filter(b -> b.sentenceType().equals("rule"))
                 .map(b -> performParse(cache.getCache(), parser, b))
                 .flatMap(r -> {
@@ -261,7 +275,7 @@ public class DefinitionParsing {
                     }
                 }).collect(Collections.toSet());
 
-        Set<Sentence> contextSet = bubbles.stream()
+        Set<Sentence> contextSet = bubbles.parallelStream()
                 .filter(b -> b.sentenceType().equals("context"))
                 .map(b -> performParse(cache.getCache(), parser, b))
                 .flatMap(r -> {
@@ -321,7 +335,7 @@ public class DefinitionParsing {
     private ParseCache loadCache(Module parser) {
         ParseCache cachedParser = caches.get(parser.name());
         if (cachedParser == null || !equalsSyntax(cachedParser.getModule(), parser) || cachedParser.isStrict() != isStrict) {
-            cachedParser = new ParseCache(parser, isStrict, java.util.Collections.synchronizedMap(new HashMap<>()));
+            cachedParser = new ParseCache(parser, isStrict, new ConcurrentHashMap<>());
             caches.put(parser.name(), cachedParser);
         }
         return cachedParser;
@@ -351,8 +365,8 @@ public class DefinitionParsing {
         int startColumn = b.att().<Integer>get("contentStartColumn").get();
         String source = b.att().<String>get("Source").get();
         Tuple2<Either<java.util.Set<ParseFailedException>, K>, java.util.Set<ParseFailedException>> result;
-        if (cache.containsKey(b.contents())) {
-            ParsedSentence parse = cache.get(b.contents());
+        ParsedSentence parse = cache.get(b.contents());
+        if (parse != null) {
             cachedBubbles.getAndIncrement();
             kem.addAllKException(parse.getWarnings().stream().map(e -> e.getKException()).collect(Collectors.toList()));
             return Right.apply(parse.getParse());
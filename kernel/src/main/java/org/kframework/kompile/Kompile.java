@@ -1,6 +1,10 @@
 // Copyright (c) 2015-2016 K Team. All Rights Reserved.
 package org.kframework.kompile;
 
+import com.google.common.collect.Lists;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.apache.commons.collections15.ListUtils;
 import org.kframework.KapiGlobal;
 import org.kframework.Strategy;
 import org.kframework.attributes.Source;
@@ -12,6 +16,7 @@ import org.kframework.compile.LabelInfoFromModule;
 import org.kframework.definition.Constructors;
 import org.kframework.definition.Definition;
 import org.kframework.definition.DefinitionTransformer;
+import org.kframework.definition.MemoizingModuleTransformer;
 import org.kframework.definition.Module;
 import org.kframework.definition.Rule;
 import org.kframework.definition.Sentence;
@@ -40,6 +45,7 @@ import org.kframework.frontend.compile.checks.CheckStreams;
 import org.kframework.main.GlobalOptions;
 import org.kframework.parser.concrete2kore.ParserUtils;
 import org.kframework.parser.concrete2kore.generator.RuleGrammarGenerator;
+import org.kframework.utils.BinaryLoader;
 import org.kframework.utils.Stopwatch;
 import org.kframework.utils.errorsystem.KEMException;
 import org.kframework.utils.errorsystem.KExceptionManager;
@@ -47,10 +53,17 @@ import org.kframework.utils.file.FileUtil;
 import org.kframework.utils.file.JarInfo;
 import scala.Option;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.TreeSet;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -106,7 +119,7 @@ public class Kompile {
     }
 
     public CompiledDefinition run(File definitionFile, String mainModuleName, String mainProgramsModuleName) {
-        return run(definitionFile, mainModuleName, mainProgramsModuleName, defaultSteps(kompileOptions, kem));
+        return run(definitionFile, mainModuleName, mainProgramsModuleName, defaultSteps(kompileOptions, kem, sw));
     }
 
     /**
@@ -121,6 +134,7 @@ public class Kompile {
     public CompiledDefinition run(File definitionFile, String mainModuleName, String mainProgramsModuleName, Function<Definition, Definition> pipeline) {
         Definition parsedDef = parseDefinition(definitionFile, mainModuleName, mainProgramsModuleName);
         sw.printIntermediate("Parse definition [" + definitionParsing.parsedBubbles.get() + "/" + (definitionParsing.parsedBubbles.get() + definitionParsing.cachedBubbles.get()) + " rules]");
+        sw.printModules(definitionParsing.moduleParsingMillis());
 
         return compile(parsedDef, pipeline);
     }
@@ -140,25 +154,100 @@ public class Kompile {
         return definitionParsing.parseDefinitionAndResolveBubbles(definitionFile, mainModuleName, mainProgramsModule);
     }
 
+    /**
+     * Returns a hash of everything the kompiled definition of the given file depends on: the paths and contents
+     * of the files it requires (found as kdep finds them), the kompile options, and the build of K. Kompiling
+     * again with the same hash yields the same kompiled definition.
+     */
+    public String fingerprint(File definitionFile) {
+        Source source = Source.apply(definitionFile.getAbsolutePath());
+        List<File> lookupDirectories = ListUtils.union(kompileOptions.outerParsing.includes.stream()
+                        .map(files::resolveWorkingDirectory).collect(Collectors.toList()),
+                Lists.newArrayList(BUILTIN_DIRECTORY));
+        lookupDirectories.add(0, definitionFile.getParentFile());
+
+        List<org.kframework.kil.Module> modules = new ArrayList<>();
+        if (!kompileOptions.outerParsing.noPrelude) {
+            modules.addAll(parser.slurp(REQUIRE_PRELUDE_K, source, lookupDirectories));
+        }
+        modules.addAll(parser.slurp(FileUtil.load(definitionFile), source, lookupDirectories));
+        java.util.Set<File> allFiles = new TreeSet<>();
+        allFiles.add(definitionFile.getAbsoluteFile());
+        modules.forEach(m -> allFiles.add(new File(m.getSource().source()).getAbsoluteFile()));
+
+        Hasher hasher = Hashing.sha256().newHasher();
+        for (File file : allFiles) {
+            hasher.putString(file.getPath(), StandardCharsets.UTF_8);
+            try {
+                hasher.putBytes(Files.readAllBytes(file.toPath()));
+            } catch (IOException e) {
+                throw KEMException.criticalError("Could not read " + file, e);
+            }
+        }
+        ByteArrayOutputStream options = new ByteArrayOutputStream();
+        new BinaryLoader(kem).saveOrDie(options, kompileOptions);
+        hasher.putBytes(options.toByteArray());
+        try {
+            // a different build of K may compile the definition differently
+            File classes = new File(Kompile.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+            hasher.putString(classes.getPath(), StandardCharsets.UTF_8);
+            hasher.putLong(classes.lastModified());
+        } catch (URISyntaxException | SecurityException e) {
+            // without the build of K the definition is never considered up to date
+            hasher.putLong(System.nanoTime());
+        }
+        return hasher.hash().toString();
+    }
+
     public static Function<Definition, Definition> defaultSteps(KompileOptions kompileOptions, KExceptionManager kem) {
+        return defaultSteps(kompileOptions, kem, null);
+    }
+
+    /**
+     * Returns the compile pipeline, which reports the time of each of its stages to the given stopwatch,
+     * if any, and the time of each module for the stages which process modules concurrently.
+     */
+    public static Function<Definition, Definition> defaultSteps(KompileOptions kompileOptions, KExceptionManager kem, Stopwatch sw) {
 
         return d -> {
             d = new ResolveIOStreams(d, kem).apply(d);
-            d = new ConvertStrictToContexts(kompileOptions).apply(d);
+            lap(sw, "  Resolve I/O streams", null);
+            ConvertStrictToContexts convertStrictToContexts = new ConvertStrictToContexts(kompileOptions);
+            d = convertStrictToContexts.apply(d);
+            lap(sw, "  Convert strict to contexts", convertStrictToContexts);
             d = new ResolveAnonVar().apply(d);
+            lap(sw, "  Resolve anonymous variables", null);
             d = new ConvertContextsToHeatCoolRules(kompileOptions).resolve(d);
-            d = new ResolveHeatCoolAttribute(new HashSet<>(kompileOptions.transition)).apply(d);
+            lap(sw, "  Convert contexts to heat/cool rules", null);
+            ResolveHeatCoolAttribute resolveHeatCoolAttribute = new ResolveHeatCoolAttribute(new HashSet<>(kompileOptions.transition));
+            d = resolveHeatCoolAttribute.apply(d);
+            lap(sw, "  Resolve heat/cool attributes", resolveHeatCoolAttribute);
             d = new ResolveSemanticCasts(kompileOptions.backend.equals(Backends.JAVA)).apply(d);
+            lap(sw, "  Resolve semantic casts", null);
             d = DefinitionTransformer.fromWithInputDefinitionTransformerClass(GenerateSortPredicateSyntax.class).apply(d);
+            lap(sw, "  Generate sort predicate syntax", null);
             d = resolveFreshConstants(d);
+            lap(sw, "  Resolve fresh constants", null);
             d = AddImplicitComputationCell.transformDefinition(d);
+            lap(sw, "  Add implicit computation cell", null);
             d = new Strategy(kompileOptions.experimental.heatCoolStrategies).addStrategyCellToRulesTransformer().apply(d);
+            lap(sw, "  Add strategy cell", null);
             d = ConcretizeCells.transformDefinition(d);
+            lap(sw, "  Concretize cells", null);
             d = addSemanticsModule(d);
             return d;
         };
     }
 
+    private static void lap(Stopwatch sw, String stage, MemoizingModuleTransformer moduleParallelStage) {
+        if (sw != null) {
+            sw.printIntermediate(stage);
+            if (moduleParallelStage != null) {
+                sw.printModules(mutable(moduleParallelStage.moduleMillis()));
+            }
+        }
+    }
+
     public Rule parseAndCompileRule(CompiledDefinition compiledDef, String contents, Source source, Optional<Rule> parsedRule) {
         Rule parsed = parsedRule.orElse(parseRule(compiledDef, contents, source));
         return compileRule(compiledDef, parsed);
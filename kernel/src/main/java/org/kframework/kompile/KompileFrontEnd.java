@@ -1,6 +1,8 @@
 // Copyright (c) 2013-2016 K Team. All Rights Reserved.
 package org.kframework.kompile;
 
+import com.google.common.collect.ImmutableList;
+import org.kframework.definition.BinaryDefinition;
 import org.kframework.definition.Definition;
 import org.kframework.main.FrontEnd;
 import org.kframework.minikore.converters.KoreToMini;
@@ -15,6 +17,10 @@ import org.kframework.utils.errorsystem.KExceptionManager;
 import org.kframework.utils.file.FileUtil;
 import org.kframework.utils.inject.DefinitionLoadingModule;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
 public class KompileFrontEnd extends FrontEnd {
 
 
@@ -50,6 +56,17 @@ public class KompileFrontEnd extends FrontEnd {
         }
 
         Kompile kompile = new Kompile(options, files, kem, sw);
+        String fingerprint = kompile.fingerprint(options.outerParsing.mainDefinitionFile(files));
+        File fingerprintFile = files.resolveKompiled(FileUtil.FINGERPRINT_TXT);
+        if (isUpToDate(fingerprint, fingerprintFile)) {
+            // nothing the kompiled definition depends on changed: only relink it, as a new kompile of it
+            loader.saveOrDie(files.resolveKompiled(FileUtil.TIMESTAMP), "");
+            sw.printIntermediate("Definition up to date");
+            sw.printTotal("Total");
+            return 0;
+        }
+        // the fingerprint is written back once the whole kompiled definition is
+        fingerprintFile.delete();
         //CompiledDefinition def = kompile.run(options.outerParsing.mainDefinitionFile(files), options.mainModule(files), options.syntaxModule(files), koreBackend.steps());
         Definition parsedDef = kompile.parseDefinition(options.outerParsing.mainDefinitionFile(files), options.mainModule(files), options.syntaxModule(files));
         ParserGenerator generator = new ParserGenerator(options, parsedDef);
@@ -59,12 +76,36 @@ public class KompileFrontEnd extends FrontEnd {
         saveParser(generator);
         save(compiledDef);
         koreBackend.accept(compiledDef);
+        files.saveToKompiled(FileUtil.FINGERPRINT_TXT, fingerprint);
         loader.saveOrDie(files.resolveKompiled(FileUtil.TIMESTAMP), "");
         sw.printIntermediate("Save to disk");
         sw.printTotal("Total");
         return 0;
     }
 
+    /**
+     * The files written by a kompile, which must all be present for the kompiled definition to be reused.
+     */
+    private static final List<String> KOMPILED_FILES = ImmutableList.of(
+            FileUtil.KORE_TXT,
+            FileUtil.KOMPILE_OPTIONS_BIN,
+            FileUtil.KOMPILE_META_INFO_TXT,
+            FileUtil.PARSER_GENERATOR_BIN,
+            FileUtil.PARSED_DEFINITION_BIN,
+            FileUtil.TOP_CELL_INITIALIZER_BIN,
+            FileUtil.KOMPILED_DEFINITION_KDEF,
+            FileUtil.PARSED_DEFINITION_KDEF);
+
+    /**
+     * Returns true if the kompiled directory holds a whole kompiled definition with the given fingerprint.
+     */
+    private boolean isUpToDate(String fingerprint, File fingerprintFile) {
+        if (!fingerprintFile.exists() || !fingerprint.equals(FileUtil.load(fingerprintFile))) {
+            return false;
+        }
+        return KOMPILED_FILES.stream().allMatch(path -> files.resolveKompiled(path).exists());
+    }
+
     public void saveKompileMetaInfo(ParserGenerator generator) {
         KompileMetaInfo info = new KompileMetaInfo(generator.mainSyntaxModuleName(), generator.configurationVariableDefaultSorts);
         files.saveToKompiled(FileUtil.KOMPILE_META_INFO_TXT, info.serialize());
@@ -87,9 +128,20 @@ public class KompileFrontEnd extends FrontEnd {
         loader.saveOrDie(files.resolveKompiled(FileUtil.KOMPILE_OPTIONS_BIN), def.kompileOptions);
         loader.saveOrDie(files.resolveKompiled(FileUtil.PARSED_DEFINITION_BIN), def.getParsedDefinition());
         loader.saveOrDie(files.resolveKompiled(FileUtil.TOP_CELL_INITIALIZER_BIN), def.topCellInitializer);
+        saveBinaryDefinition(FileUtil.KOMPILED_DEFINITION_KDEF, def.kompiledDefinition);
+        saveBinaryDefinition(FileUtil.PARSED_DEFINITION_KDEF, def.getParsedDefinition());
         // saveTest(def);
     }
 
+    private void saveBinaryDefinition(String path, Definition definition) {
+        File file = files.resolveKompiled(path);
+        try {
+            BinaryDefinition.write(definition, file);
+        } catch (IOException e) {
+            throw KEMException.criticalError("Could not write to " + file, e);
+        }
+    }
+
     // for serialization/deserialization test
     public void saveTest(CompiledDefinition def) {
         KoreToMiniToKore.apply(def.kompiledDefinition);
@@ -160,6 +160,32 @@ public final class KRunOptions {
         }
     }
 
+    /**
+     * How the states visited by search and prove are remembered.
+     */
+    public enum StateStore {
+        /** Keep every visited state. */
+        EXACT,
+        /** Keep a 128-bit fingerprint of each visited state on the Java heap. */
+        FINGERPRINT,
+        /** Keep a 128-bit fingerprint of each visited state outside of the Java heap. */
+        OFF_HEAP,
+        /** Keep a 128-bit fingerprint of each visited state in a memory-mapped temporary file. */
+        MAPPED
+    }
+
+    public static class StateStoreConverter extends BaseEnumConverter<StateStore> {
+
+        public StateStoreConverter(String optionName) {
+            super(optionName);
+        }
+
+        @Override
+        public Class<StateStore> enumClass() {
+            return StateStore.class;
+        }
+    }
+
     @Parameter(names="--search", description="In conjunction with it you can specify 3 options that are optional: pattern (the pattern used for search), bound (the number of desired solutions) and depth (the maximum depth of the search).")
     public boolean search = false;
 
@@ -210,6 +236,33 @@ public final class KRunOptions {
         }
     }
 
+    /**
+     * The order in which search explores states.
+     */
+    public enum SearchStrategy {
+        BFS, DFS, ITERATIVE_DEEPENING, BEST_FIRST
+    }
+
+    public static class SearchStrategyConverter extends BaseEnumConverter<SearchStrategy> {
+
+        public SearchStrategyConverter(String optionName) {
+            super(optionName);
+        }
+
+        @Override
+        public Class<SearchStrategy> enumClass() {
+            return SearchStrategy.class;
+        }
+    }
+
+    @Parameter(names="--search-strategy", converter=SearchStrategyConverter.class,
+            description="The order in which --search explores states. <strategy> is one of [bfs|dfs|iterative-deepening|best-first].")
+    public SearchStrategy searchStrategy = SearchStrategy.BFS;
+
+    @Parameter(names="--search-heuristic", description="The cell ranking the states of a best-first search. "
+            + "States whose cell holds a smaller integer, or fewer computational items, are explored first.")
+    public String searchHeuristic;
+
     @Parameter(names="--pattern", description="Specify a term and/or side condition that the result of execution or search must match in order to succeed. Return the resulting matches as a list of substitutions. In conjunction with it you can specify other 2 options that are optional: bound (the number of desired solutions) and depth (the maximum depth of the search).")
     public String pattern;
 
@@ -231,6 +284,54 @@ public final class KRunOptions {
     @ParametersDelegate
     public Experimental experimental = new Experimental();
 
+    public enum CoverageFormat {
+        TRACE, COUNTS, BINARY
+    }
+
+    public static class CoverageFormatConverter extends BaseEnumConverter<CoverageFormat> {
+
+        public CoverageFormatConverter(String optionName) {
+            super(optionName);
+        }
+
+        @Override
+        public Class<CoverageFormat> enumClass() {
+            return CoverageFormat.class;
+        }
+    }
+
+    public enum ProfileFormat {
+        JSON, FOLDED
+    }
+
+    public static class ProfileFormatConverter extends BaseEnumConverter<ProfileFormat> {
+
+        public ProfileFormatConverter(String optionName) {
+            super(optionName);
+        }
+
+        @Override
+        public Class<ProfileFormat> enumClass() {
+            return ProfileFormat.class;
+        }
+    }
+
+    public enum RHSEvaluation {
+        TRANSFORMER, INSTRUCTIONS, COMPILED
+    }
+
+    public static class RHSEvaluationConverter extends BaseEnumConverter<RHSEvaluation> {
+
+        public RHSEvaluationConverter(String optionName) {
+            super(optionName);
+        }
+
+        @Override
+        public Class<RHSEvaluation> enumClass() {
+            return RHSEvaluation.class;
+        }
+    }
+
     public final class Experimental {
 
         @Parameter(names="--simulation", description="Simulation property of two programs in two semantics.",
@@ -241,6 +342,19 @@ public final class KRunOptions {
                 converter=OnOffConverter.class)
         public boolean statistics = false;
 
+        @Parameter(names="--search-threads", description="The number of threads expanding the states of each search layer in parallel. "
+                + "Search results and their order are the same as with a single thread, up to the names of renamed variables.")
+        public int searchThreads = 1;
+
+        @Parameter(names="--prove-threads", description="The number of threads computing the steps of each layer of the execution tree of a proof obligation in parallel. "
+                + "Proof results and their order are the same as with a single thread, up to the names of renamed variables.")
+        public int proveThreads = 1;
+
+        @Parameter(names="--state-store", converter=StateStoreConverter.class,
+                description="How visited states are remembered by search and prove. <store> is one of [exact|fingerprint|off-heap|mapped]. "
+                + "All but exact keep only a 128-bit fingerprint of each state, which may in rare cases merge distinct states.")
+        public StateStore stateStore = StateStore.EXACT;
+
         @Parameter(names="--debugger", description="Run an execution in debug mode.")
         private boolean debugger = false;
 
@@ -273,6 +387,12 @@ public final class KRunOptions {
         @Parameter(names="--coverage-file", description="Record a trace of locations of all rules and terms applied.")
         public File coverage = null;
 
+        @Parameter(names="--coverage-format", converter=CoverageFormatConverter.class,
+                description="The format of --coverage-file. <format> is one of [trace|counts|binary]. " +
+                "counts records the number of applications of each location instead of a trace. " +
+                "A trace is appended to the file, while counts and binary replace it on each run.")
+        public CoverageFormat coverageFormat = CoverageFormat.TRACE;
+
         @Parameter(names="--native-libraries", description="Native libraries to link the rewrite engine against. Useful in defining rewriter plugins.",
                 listConverter=StringListConverter.class)
         public List<String> nativeLibraries = Collections.emptyList();
@@ -283,5 +403,27 @@ public final class KRunOptions {
 
         @Parameter(names="--profile", description="Run krun multiple times to gather better performance metrics.")
         public int profile = 1;
+
+        @Parameter(names="--profile-file", description="Record the number of applications and the time spent in each rule " +
+                "and function, and write them to the given file at the end of the run.")
+        public File profileFile = null;
+
+        @Parameter(names="--profile-format", converter=ProfileFormatConverter.class,
+                description="The format of --profile-file. <format> is one of [json|folded]. folded is the input format of flame graph tools.")
+        public ProfileFormat profileFormat = ProfileFormat.JSON;
+
+        @Parameter(names="--rhs-evaluation", converter=RHSEvaluationConverter.class,
+                description="How the Java backend builds the right-hand sides of rules during concrete execution. <mode> is one of [instructions|compiled|transformer]. "
+                + "instructions runs the precompiled instruction schedule of each right-hand side; compiled also compiles the schedules of the right-hand sides "
+                + "and side conditions into closures when the definition is loaded; transformer substitutes into the right-hand side term.")
+        public RHSEvaluation rhsEvaluation = RHSEvaluation.INSTRUCTIONS;
+
+        @Parameter(names="--memo-size", description="The number of results the Java backend memoizes for each function tagged [memo]. "
+                + "The least recently used results are evicted first; 0 disables memoization.")
+        public int memoSize = 10000;
+
+        @Parameter(names="--hash-cons", description="Intern the ground KItems built by the Java backend, so that equal ground terms are "
+                + "shared and compared by reference. The source location of an interned term is the one of its first occurrence.")
+        public boolean hashCons = false;
     }
 }
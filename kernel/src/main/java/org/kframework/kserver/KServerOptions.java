@@ -13,4 +13,8 @@ public class KServerOptions {
 
     @Parameter(names={"--port", "-p"}, description="The port to start the server on.")
     public int port = 2113;
+
+    @Parameter(names="--definition-cache-size", description="The number of kompiled definitions to keep loaded " +
+            "between calls to krun. Use 0 to load the definition on every call.")
+    public int definitionCacheSize = 4;
 }
@@ -101,10 +101,13 @@ public class ParseInModule implements Serializable {
     }
 
     private void getGrammar() {
-        Grammar g = grammar;
-        if (g == null) {
-            g = KSyntax2GrammarStatesFilter.getGrammar(this.parsingModule);
-            grammar = g;
+        if (grammar == null) {
+            // bubbles are parsed concurrently; build the grammar only once
+            synchronized (this) {
+                if (grammar == null) {
+                    grammar = KSyntax2GrammarStatesFilter.getGrammar(this.parsingModule);
+                }
+            }
         }
     }
 
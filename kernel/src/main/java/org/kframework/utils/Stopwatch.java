@@ -4,6 +4,7 @@ package org.kframework.utils;
 import org.kframework.main.GlobalOptions;
 
 import java.util.Formatter;
+import java.util.Map;
 
 /**
  * To use, access {@link #instance()} after calling {@link #init(GlobalOptions) init()}.
@@ -31,6 +32,19 @@ public class Stopwatch {
         lastIntermediate = current;
     }
 
+    /**
+     * Prints the time in milliseconds spent on each module by the stage which was just reported,
+     * slowest first. Modules may have been processed concurrently, so the times may add up to more
+     * than the time of the stage.
+     */
+    public void printModules(Map<String, Long> moduleMillis) {
+        if (options.verbose) {
+            moduleMillis.entrySet().stream()
+                    .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                    .forEach(e -> f.format("  %-58s = %5d%n", e.getKey(), e.getValue()));
+        }
+    }
+
     public void printTotal(String message) {
         printIntermediate("Cleanup");
         if (options.verbose)
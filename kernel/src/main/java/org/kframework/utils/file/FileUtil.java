@@ -37,14 +37,17 @@ public class FileUtil {
 
     public static final String KORE_TXT = "kore.txt";
     public static final String KOMPILED_DEFINITION_BIN = "extras/kompiledDefinition.bin";
+    public static final String KOMPILED_DEFINITION_KDEF = "extras/kompiledDefinition.kdef";
     public static final String KOMPILE_OPTIONS_BIN = "extras/kompileOptions.bin";
     public static final String KOMPILE_META_INFO_TXT = "extras/kompileMetaInfo.txt";
     public static final String PARSER_GENERATOR_BIN = "extras/parserGenerator.bin";
     public static final String PARSED_DEFINITION_BIN = "extras/parsedDefinition.bin";
+    public static final String PARSED_DEFINITION_KDEF = "extras/parsedDefinition.kdef";
     public static final String EXTRAS_FOLDER = "extras/";
     public static final String TOP_CELL_INITIALIZER_BIN = "extras/topCellInitializer.bin";
     public static final String CACHE_BIN = "extras/cache.bin";
     public static final String TIMESTAMP = "extras/timestamp";
+    public static final String FINGERPRINT_TXT = "extras/fingerprint.txt";
 
     public FileUtil(
             File tempDir,
@@ -1,6 +1,7 @@
 // Copyright (c) 2014-2016 K Team. All Rights Reserved.
 package org.kframework.utils.inject;
 
+import org.kframework.definition.BinaryDefinition;
 import org.kframework.definition.ProcessedDefinition;
 import org.kframework.kil.Definition;
 import org.kframework.kil.loader.Context;
@@ -77,15 +78,41 @@ public class DefinitionLoadingModule {
     }
 
     // NOTE: should be matched with org.kframework.kompile.KompileFrontEnd.save()
-    public static CompiledDefinition koreDefinition(BinaryLoader loader, FileUtil files) {
+    public static CompiledDefinition koreDefinition(BinaryLoader loader, FileUtil files, KExceptionManager kem) {
         // org.kframework.definition.Definition kompiledDefinition = loader.loadOrDie(org.kframework.definition.Definition.class, files.resolveKompiled(FileUtil.KOMPILED_DEFINITION_BIN)); // deprecated
-        org.kframework.definition.Definition kompiledDefinition = MiniToKore.apply(parseKore(files));
+        org.kframework.definition.Definition kompiledDefinition = loadBinaryDefinition(files.resolveKompiled(FileUtil.KOMPILED_DEFINITION_KDEF), kem);
+        if (kompiledDefinition == null) {
+            kompiledDefinition = MiniToKore.apply(parseKore(files));
+        }
         KompileOptions kompileOptions = loader.loadOrDie(KompileOptions.class, files.resolveKompiled(FileUtil.KOMPILE_OPTIONS_BIN));
-        org.kframework.definition.Definition parsedDefinition = loader.loadOrDie(org.kframework.definition.Definition.class, files.resolveKompiled(FileUtil.PARSED_DEFINITION_BIN));
+        org.kframework.definition.Definition parsedDefinition = loadBinaryDefinition(files.resolveKompiled(FileUtil.PARSED_DEFINITION_KDEF), kem);
+        if (parsedDefinition == null) {
+            parsedDefinition = loader.loadOrDie(org.kframework.definition.Definition.class, files.resolveKompiled(FileUtil.PARSED_DEFINITION_BIN));
+        }
         org.kframework.frontend.KLabel topCellInitializer = loader.loadOrDie(org.kframework.frontend.KLabel.class, files.resolveKompiled(FileUtil.TOP_CELL_INITIALIZER_BIN));
         return new CompiledDefinition(kompileOptions, parsedDefinition, kompiledDefinition, topCellInitializer);
     }
 
+    /**
+     * Loads a definition from its binary encoding, or returns null if there is none which can be read, for
+     * example because the definition was kompiled by a version of K with another encoding. A file which
+     * cannot be decoded into a valid definition is reported as a warning, and the caller falls back to
+     * another encoding.
+     */
+    private static org.kframework.definition.Definition loadBinaryDefinition(File file, KExceptionManager kem) {
+        if (!file.exists()) {
+            return null;
+        }
+        try {
+            return BinaryDefinition.read(file);
+        } catch (IOException | RuntimeException | AssertionError e) {
+            // a corrupt file may decode into terms of the wrong types, or into modules which fail validation
+            kem.registerInternalWarning("Could not load the binary definition " + file.getAbsolutePath()
+                    + ", loading it from another encoding instead: " + e, e);
+            return null;
+        }
+    }
+
     public static ProcessedDefinition miniKoreDefinition(BinaryLoader loader, FileUtil files) {
         org.kframework.kore.Builders defaultBuilder = org.kframework.kore.implementation.DefaultBuilders$.MODULE$;
         org.kframework.kore.Definition definition = null;
@@ -33,6 +33,18 @@ public class SMTOptions implements Serializable {
     @Parameter(names="--z3-executable", description="Invokes Z3 as an external process.")
     public boolean z3Executable = false;
 
+    @Parameter(names="--z3-persistent", description="Keep a Z3 session alive in each worker across queries. The SMT prelude is loaded once per session and each query is checked in its own push/pop scope.")
+    public boolean z3Persistent = false;
+
+    @Parameter(names="--z3-workers", description="The number of Z3 workers checking queries concurrently.")
+    public int z3Workers = Runtime.getRuntime().availableProcessors();
+
+    @Parameter(names="--smt-cache-size", description="The maximum number of SMT query results to remember. 0 disables the cache.")
+    public int smtCacheSize = 10000;
+
+    @Parameter(names="--smt-cache-file", description="Also store SMT query results in the kompiled directory and reuse them in later runs.")
+    public boolean smtCacheFile = false;
+
     @Parameter(names="--z3-cnstr-timeout", description="The default soft timeout (in milli seconds) of Z3 for checking constraint satisfiability.")
     public int z3CnstrTimeout = 50;
 
@@ -0,0 +1,106 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.kserver;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import org.kframework.backend.java.symbolic.InitializeRewriter;
+import org.kframework.definition.ProcessedDefinition;
+import org.kframework.kompile.CompiledDefinition;
+import org.kframework.kompile.KompileMetaInfo;
+import org.kframework.utils.file.FileUtil;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * The kompiled definitions loaded by the calls to krun on the K server, kept so that later calls against the same
+ * definition neither load it nor initialize the backend definition of its rewriter again. A reused backend definition
+ * takes the options, exception manager and hooks of the call reusing it; see {@link InitializeRewriter.InitializeDefinition}.
+ * <p>
+ * A definition is keyed by its kompiled directory, and is loaded again if the files krun loads from the directory
+ * changed since. At most {@link KServerOptions#definitionCacheSize} definitions are kept, and the least recently used
+ * ones are evicted first; they are also softly referenced, so that the garbage collector evicts them when memory runs
+ * low. A definition is used by at most one call at a time, as the backend definition is not thread-safe: a call against
+ * a definition which is in use loads a copy of its own.
+ */
+public class DefinitionCache {
+
+    public static final class Entry {
+        public final KompileMetaInfo kompileMetaInfo;
+        public final CompiledDefinition compiledDefinition;
+        public final ProcessedDefinition processedDefinition;
+        public final InitializeRewriter.InitializeDefinition initializeDefinition = new InitializeRewriter.InitializeDefinition();
+
+        private final AtomicBoolean inUse = new AtomicBoolean();
+        private String stamp;
+
+        public Entry(KompileMetaInfo kompileMetaInfo, CompiledDefinition compiledDefinition, ProcessedDefinition processedDefinition) {
+            this.kompileMetaInfo = kompileMetaInfo;
+            this.compiledDefinition = compiledDefinition;
+            this.processedDefinition = processedDefinition;
+        }
+
+        /**
+         * Makes this definition available to the next call.
+         */
+        public void release() {
+            inUse.set(false);
+        }
+    }
+
+    /**
+     * The files of a kompiled directory which krun loads a definition from.
+     */
+    private static final List<String> DEFINITION_FILES = ImmutableList.of(
+            FileUtil.TIMESTAMP,
+            FileUtil.KORE_TXT,
+            FileUtil.KOMPILED_DEFINITION_KDEF,
+            FileUtil.PARSED_DEFINITION_KDEF,
+            FileUtil.PARSED_DEFINITION_BIN,
+            FileUtil.KOMPILE_OPTIONS_BIN,
+            FileUtil.TOP_CELL_INITIALIZER_BIN,
+            FileUtil.KOMPILE_META_INFO_TXT);
+
+    private final Cache<Path, Entry> entries;
+
+    public DefinitionCache(int size) {
+        entries = CacheBuilder.newBuilder().maximumSize(size).softValues().build();
+    }
+
+    /**
+     * Returns the definition in the given kompiled directory, in use by the caller until it releases it. The
+     * definition is loaded with the given supplier unless an up-to-date one which is not in use is cached.
+     */
+    public Entry acquire(File kompiledDir, Supplier<Entry> load) {
+        Path key = kompiledDir.toPath().toAbsolutePath().normalize();
+        String stamp = stamp(kompiledDir);
+        Entry cached = entries.getIfPresent(key);
+        if (cached != null && cached.stamp.equals(stamp) && cached.inUse.compareAndSet(false, true)) {
+            return cached;
+        }
+        Entry entry = load.get();
+        entry.stamp = stamp;
+        entry.inUse.set(true);
+        if (cached == null || !cached.stamp.equals(stamp)) {
+            entries.put(key, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Returns the modification times and sizes of the definition files in the given kompiled directory. The stamp is
+     * taken before loading, so a definition kompiled again while it loads is loaded again by the next call.
+     */
+    private static String stamp(File kompiledDir) {
+        StringBuilder sb = new StringBuilder();
+        for (String path : DEFINITION_FILES) {
+            File file = new File(kompiledDir, path);
+            sb.append(file.lastModified()).append(':').append(file.length()).append(';');
+        }
+        return sb.toString();
+    }
+}
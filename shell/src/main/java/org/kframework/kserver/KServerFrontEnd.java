@@ -33,6 +33,7 @@ public class KServerFrontEnd extends FrontEnd {
             FileUtil files) {
         super(kem, options.global, files);
         this.options = options;
+        this.definitionCache = new DefinitionCache(options.definitionCacheSize);
     }
 
     private static KServerFrontEnd instance;
@@ -40,6 +41,7 @@ public class KServerFrontEnd extends FrontEnd {
     private static final ImmutableList<String> tools = ImmutableList.of("-kompile", "-krun", "-kast", "-kdoc", "-ktest", "-kdep");
 
     private final KServerOptions options;
+    private final DefinitionCache definitionCache;
 
     @Override
     protected int run() {
@@ -71,6 +73,10 @@ public class KServerFrontEnd extends FrontEnd {
         return instance;
     }
 
+    public DefinitionCache definitionCache() {
+        return definitionCache;
+    }
+
     public int run(String tool, String[] args, File workingDir, Map<String, String> env) {
         ThreadLocalPrintStream system_out = (ThreadLocalPrintStream) System.out;
         ThreadLocalPrintStream system_err = (ThreadLocalPrintStream) System.err;
@@ -36,6 +36,7 @@ import org.kframework.krun.ioserver.filesystem.portable.PortableFileSystem;
 import org.kframework.krun.modes.DebugMode.DebugExecutionMode;
 import org.kframework.krun.modes.ExecutionMode;
 import org.kframework.krun.modes.KRunExecutionMode;
+import org.kframework.kserver.DefinitionCache;
 import org.kframework.kserver.KServerFrontEnd;
 import org.kframework.kserver.KServerOptions;
 import org.kframework.ktest.CmdArgs.KTestOptions;
@@ -59,6 +60,7 @@ import java.util.Arrays;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 public class Main {
 
@@ -223,45 +225,57 @@ public class Main {
 
             // loading kompiled definition
             Context context = null; // DefinitionLoadingModule.context(loader, kRunOptions.configurationCreation.definitionLoading, kRunOptions.global, sw, kem, files, kRunOptions); // TODO: check if 'context.bin' exists
-            KompileMetaInfo kompileMetaInfo = DefinitionLoadingModule.kompilemetaInfo(files);
-            CompiledDefinition compiledDef = DefinitionLoadingModule.koreDefinition(loader, files);
-            ProcessedDefinition processedDefinition = DefinitionLoadingModule.miniKoreDefinition(loader, files);
-            KompileOptions kompileOptions = DefinitionLoadingModule.kompileOptions(context, compiledDef, files);
-
-            // krun
-
-            Function<Module, Rewriter> initializeRewriter;
-            Function<Pair<Module, org.kframework.kore.Definition>, Rewriter> intializeMiniKoreRewriter;
-            if (kompileOptions.backend.equals(Backends.JAVA)) {
-                //
-                Map<String, MethodHandle> hookProvider = HookProvider.get(kem);
-                InitializeRewriter.InitializeDefinition initializeDefinition = new InitializeRewriter.InitializeDefinition();
-                intializeMiniKoreRewriter = new InitializeRewriter(fs, javaExecutionOptions.deterministicFunctions,
-                        kRunOptions.global, kem, kRunOptions.experimental.smt, hookProvider, kompileOptions.transition,
-                        kRunOptions, files, initializeDefinition);
-            } else if (kompileOptions.backend.equals(Backends.KALE)) {
-                initializeRewriter = KaleRewriter::apply;
-                intializeMiniKoreRewriter = null;
-            } else {
-                throw new AssertionError("Backend not hooked to the shell.");
+            Supplier<DefinitionCache.Entry> loadDefinition = () -> new DefinitionCache.Entry(
+                    DefinitionLoadingModule.kompilemetaInfo(files),
+                    DefinitionLoadingModule.koreDefinition(loader, files, kem),
+                    DefinitionLoadingModule.miniKoreDefinition(loader, files));
+            // the K server reuses the definitions loaded by its earlier calls
+            DefinitionCache.Entry definitionEntry = isNailgun
+                    ? KServerFrontEnd.instance().definitionCache().acquire(kompiledDir, loadDefinition)
+                    : loadDefinition.get();
+            try {
+                KompileMetaInfo kompileMetaInfo = definitionEntry.kompileMetaInfo;
+                CompiledDefinition compiledDef = definitionEntry.compiledDefinition;
+                ProcessedDefinition processedDefinition = definitionEntry.processedDefinition;
+                KompileOptions kompileOptions = DefinitionLoadingModule.kompileOptions(context, compiledDef, files);
+
+                // krun
+
+                Function<Module, Rewriter> initializeRewriter;
+                Function<Pair<Module, org.kframework.kore.Definition>, Rewriter> intializeMiniKoreRewriter;
+                if (kompileOptions.backend.equals(Backends.JAVA)) {
+                    //
+                    Map<String, MethodHandle> hookProvider = HookProvider.get(kem);
+                    InitializeRewriter.InitializeDefinition initializeDefinition = definitionEntry.initializeDefinition;
+                    intializeMiniKoreRewriter = new InitializeRewriter(fs, javaExecutionOptions.deterministicFunctions,
+                            kRunOptions.global, kem, kRunOptions.experimental.smt, hookProvider, kompileOptions.transition,
+                            kRunOptions, files, initializeDefinition);
+                } else if (kompileOptions.backend.equals(Backends.KALE)) {
+                    initializeRewriter = KaleRewriter::apply;
+                    intializeMiniKoreRewriter = null;
+                } else {
+                    throw new AssertionError("Backend not hooked to the shell.");
+                }
+
+                ExecutionMode executionMode;
+                boolean isProofMode = kRunOptions.experimental.prove != null;
+                boolean isDebugMode = kRunOptions.experimental.debugger();
+                assert !(isProofMode && isDebugMode); // TODO: generate error messages for multiple tool activations
+                if (isProofMode) {
+                    executionMode = new ProofExecutionMode(kem, kRunOptions, sw, files, kRunOptions.global);
+                } else if (isDebugMode) {
+                    executionMode = new DebugExecutionMode(kRunOptions, kem, files, 500, fs);
+                } else {
+                    executionMode = new KRunExecutionMode(kRunOptions, kem, files);
+                }
+
+                KRunFrontEnd frontEnd = new KRunFrontEnd(kRunOptions.global, kem, kRunOptions, files, kompileMetaInfo,
+                        compiledDef, processedDefinition, intializeMiniKoreRewriter, executionMode, ttyInfo, isNailgun);
+
+                return runApplication(frontEnd, kem);
+            } finally {
+                definitionEntry.release();
             }
-
-            ExecutionMode executionMode;
-            boolean isProofMode = kRunOptions.experimental.prove != null;
-            boolean isDebugMode = kRunOptions.experimental.debugger();
-            assert !(isProofMode && isDebugMode); // TODO: generate error messages for multiple tool activations
-            if (isProofMode) {
-                executionMode = new ProofExecutionMode(kem, kRunOptions, sw, files, kRunOptions.global);
-            } else if (isDebugMode) {
-                executionMode = new DebugExecutionMode(kRunOptions, kem, files, 500, fs);
-            } else {
-                executionMode = new KRunExecutionMode(kRunOptions, kem, files);
-            }
-
-            KRunFrontEnd frontEnd = new KRunFrontEnd(kRunOptions.global, kem, kRunOptions, files, kompileMetaInfo,
-                    compiledDef, processedDefinition, intializeMiniKoreRewriter, executionMode, ttyInfo, isNailgun);
-
-            return runApplication(frontEnd, kem);
         }
 
         if (toolName.equals("-kast")) {
@@ -396,9 +410,9 @@ public class Main {
             String prove1  = FileUtil.resolveWorkingDirectory(new File(keqOptions.prove1), workingDir).getAbsolutePath();
             String prove2  = FileUtil.resolveWorkingDirectory(new File(keqOptions.prove2), workingDir).getAbsolutePath();
 
-            CompiledDefinition compiledDef0 = DefinitionLoadingModule.koreDefinition(loader, new FileUtil(null, null, null, def0File, null, null));
-            CompiledDefinition compiledDef1 = DefinitionLoadingModule.koreDefinition(loader, new FileUtil(null, null, null, def1File, null, null));
-            CompiledDefinition compiledDef2 = DefinitionLoadingModule.koreDefinition(loader, new FileUtil(null, null, null, def2File, null, null));
+            CompiledDefinition compiledDef0 = DefinitionLoadingModule.koreDefinition(loader, new FileUtil(null, null, null, def0File, null, null), kem);
+            CompiledDefinition compiledDef1 = DefinitionLoadingModule.koreDefinition(loader, new FileUtil(null, null, null, def1File, null, null), kem);
+            CompiledDefinition compiledDef2 = DefinitionLoadingModule.koreDefinition(loader, new FileUtil(null, null, null, def2File, null, null), kem);
 
             // kequiv
             Kapi.kequiv(compiledDef0, compiledDef1, compiledDef2, prove1, prove2, prelude);